@@ -0,0 +1,135 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+
+import com.hospital.manager.benchmark.BenchmarkDatabase;
+
+/**
+ * <p>
+ * Measures booking an appointment through {@link AppointmentService#book} and the
+ * doctor and room conflict checks it performs, against a database seeded with
+ * {@link #appointments} appointments (see {@link BenchmarkDatabase}).
+ * </p>
+ *
+ * <p>
+ * This benchmark lives in the appointment package so that it can measure the
+ * conflict checks of the package private {@link AppointmentIndex} directly. To run
+ * it with larger data sets (give the forked JVM enough heap for the largest ones):
+ * </p>
+ *
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec -Djmh.args="AppointmentServiceBenchmark -p appointments=1000,100000,10000000 -jvmArgs -Xmx8g"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AppointmentServiceBenchmark
+{
+    /**
+     * The number of appointments seeded before the benchmark starts.
+     */
+    @Param({"1000"})
+    public int appointments;
+
+    @Setup
+    public void start()
+    {
+        context = BenchmarkDatabase.start(appointments);
+        service = context.getBean(AppointmentService.class);
+        index = context.getBean(AppointmentIndex.class);
+        doctors = BenchmarkDatabase.doctors(appointments);
+        patients = BenchmarkDatabase.patients(appointments);
+        nextMinute.set(BenchmarkDatabase.FIRST_MINUTE + appointments);
+    }
+
+    @TearDown
+    public void stop()
+    {
+        BenchmarkDatabase.stop(context);
+    }
+
+    /**
+     * Book an appointment that does not conflict with any other appointment.
+     * @return The status of the booking.
+     */
+    @Benchmark
+    public HttpStatus book()
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return service.book(
+            1 + random.nextInt(patients),
+            1 + random.nextInt(doctors),
+            AppointmentTime.toDateTime(nextMinute.getAndIncrement()),
+            random.nextInt(BenchmarkDatabase.ROOMS),
+            BenchmarkDatabase.DURATION);
+    }
+
+    /**
+     * @return Whether a random doctor is available at a random time of the seeded data.
+     */
+    @Benchmark
+    public boolean doctorAvailability()
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return index.isDoctorAvailable(1 + random.nextInt(doctors), randomSeededTime(random),
+            BenchmarkDatabase.DURATION, 0L);
+    }
+
+    /**
+     * @return Whether a random room is available at a random time of the seeded data.
+     */
+    @Benchmark
+    public boolean roomAvailability()
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return index.isRoomAvailable(random.nextInt(BenchmarkDatabase.ROOMS), randomSeededTime(random),
+            BenchmarkDatabase.DURATION, 0L);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private LocalDateTime randomSeededTime(final ThreadLocalRandom random)
+    {
+        return AppointmentTime.toDateTime(BenchmarkDatabase.FIRST_MINUTE + random.nextInt(appointments));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private ConfigurableApplicationContext context;
+    private AppointmentService service;
+    private AppointmentIndex index;
+    private int doctors;
+    private int patients;
+
+    // The minute of the next booking, after all of the seeded appointments.
+    private final AtomicInteger nextMinute = new AtomicInteger();
+}
@@ -0,0 +1,234 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hospital.manager.benchmark.BenchmarkDatabase;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Books appointments from several threads at once through
+ * {@link AppointmentService#book}, and fails the run if any doctor or room ends up
+ * with two appointments at the same time.
+ * </p>
+ *
+ * <ul>
+ *     <li>{@link #distinctSlots} gives every thread its own doctor and room, so no
+ *     two bookings conflict. Its throughput should grow almost linearly with the
+ *     number of threads, since the bookings take different locks.</li>
+ *     <li>{@link #sameSlot} makes every thread try to book the same doctor and room
+ *     at the same time. Exactly one booking must win each slot, the others are
+ *     rejected as conflicts.</li>
+ * </ul>
+ *
+ * <p>
+ * The same conflicts are checked, without timing them, by ConcurrentBookingTest.
+ * </p>
+ *
+ * <p>
+ * To compare the scaling, run it with different thread counts:
+ * </p>
+ *
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec -Djmh.args="BookingStressBenchmark -t 1"
+ * mvn -Pbenchmarks compile exec:exec -Djmh.args="BookingStressBenchmark -t 8"
+ * </pre>
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookingStressBenchmark
+{
+    /**
+     * The number of appointments seeded before the benchmark starts. This must leave
+     * at least one doctor for every thread (one doctor is seeded for every 100
+     * appointments).
+     */
+    @Param({"10000"})
+    public int appointments;
+
+    /**
+     * The doctor, room and next booking time of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Booker
+    {
+        @Setup
+        public void start(final BookingStressBenchmark benchmark)
+        {
+            final int thread = benchmark.threads.getAndIncrement();
+
+            if (thread >= benchmark.doctors || thread >= BenchmarkDatabase.ROOMS)
+            {
+                throw new IllegalStateException("Seed more appointments to give each thread its own doctor.");
+            }
+
+            doctorId = 1 + thread;
+            room = thread;
+            nextMinute = BenchmarkDatabase.FIRST_MINUTE + benchmark.appointments;
+        }
+
+        private long doctorId;
+        private int room;
+        private int nextMinute;
+    }
+
+    @Setup
+    public void start()
+    {
+        context = BenchmarkDatabase.start(appointments);
+        service = context.getBean(AppointmentService.class);
+        doctors = BenchmarkDatabase.doctors(appointments);
+        patients = BenchmarkDatabase.patients(appointments);
+        contendedMinute.set(BenchmarkDatabase.FIRST_MINUTE + appointments);
+    }
+
+    @TearDown
+    public void stop()
+    {
+        try
+        {
+            verify();
+        }
+        finally
+        {
+            BenchmarkDatabase.stop(context);
+        }
+    }
+
+    /**
+     * Book the next slot of the doctor and room owned by the calling thread.
+     * @param booker The state of the calling thread.
+     */
+    @Benchmark
+    public void distinctSlots(final Booker booker)
+    {
+        service.book(
+            randomPatient(),
+            booker.doctorId,
+            AppointmentTime.toDateTime(booker.nextMinute++),
+            booker.room,
+            BenchmarkDatabase.DURATION);
+    }
+
+    /**
+     * Try to book the current contended slot, which every thread competes for.
+     * @return True if this booking won the slot.
+     */
+    @Benchmark
+    public boolean sameSlot()
+    {
+        final int minute = contendedMinute.get();
+
+        try
+        {
+            service.book(randomPatient(), CONTENDED_DOCTOR, AppointmentTime.toDateTime(minute), CONTENDED_ROOM,
+                BenchmarkDatabase.DURATION);
+        }
+        catch (final FailedRequestException e)
+        {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        if (!contendedMinutes.add(minute))
+        {
+            doubleBookings.incrementAndGet();
+        }
+
+        //move every thread on to the next slot
+        contendedMinute.compareAndSet(minute, minute + 1);
+        return true;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private long randomPatient()
+    {
+        return 1 + ThreadLocalRandom.current().nextInt(patients);
+    }
+
+    // The number of pairs of appointments of the same doctor or room (depending on the
+    // column) that overlap. Of two overlapping appointments, one always starts during
+    // the other.
+    private static int countOverlaps(final JdbcTemplate jdbc, final String column)
+    {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM appointment a JOIN appointment b"
+            + " ON b." + column + " = a." + column + " AND b.id <> a.id"
+            + " AND b.start_minute >= a.start_minute AND b.start_minute < a.start_minute + a.duration",
+            Integer.class);
+    }
+
+    // Fail the trial if a slot was booked twice, either as seen by the benchmark
+    // threads or as stored in the database.
+    private void verify()
+    {
+        final JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        final int doctorDuplicates = countOverlaps(jdbc, "doctor_id");
+        final int roomDuplicates = countOverlaps(jdbc, "room");
+
+        log.warn("{} contended slot(s) booked, {} booking(s) rejected as conflicts.",
+            contendedMinutes.size(), rejected.get());
+
+        if (doubleBookings.get() > 0 || doctorDuplicates > 0 || roomDuplicates > 0)
+        {
+            throw new IllegalStateException("Double bookings found: " + doubleBookings.get() + " contended slot(s)"
+                + " won twice, " + doctorDuplicates + " doctor slot(s) and " + roomDuplicates + " room slot(s)"
+                + " booked twice in the database.");
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private ConfigurableApplicationContext context;
+    private AppointmentService service;
+    private int doctors;
+    private int patients;
+
+    // Hands out the doctor and room of each benchmark thread.
+    private final AtomicInteger threads = new AtomicInteger();
+
+    // The slot every thread competes for in sameSlot, and the slots already won.
+    private final AtomicInteger contendedMinute = new AtomicInteger();
+    private final Set<Integer> contendedMinutes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong doubleBookings = new AtomicLong();
+
+    // The doctor and room of the contended slot. Every benchmark method runs on its
+    // own database, so these do not interfere with the ones used by distinctSlots.
+    private static final long CONTENDED_DOCTOR = 1L;
+    private static final int CONTENDED_ROOM = 0;
+}
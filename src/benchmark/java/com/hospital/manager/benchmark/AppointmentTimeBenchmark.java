@@ -0,0 +1,74 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.manager.appointment.AppointmentTime;
+
+/**
+ * <p>
+ * Compares the parse and format throughput of {@link AppointmentTime} with the
+ * {@link SimpleDateFormat} it replaced. Each benchmark thread gets its own
+ * {@link SimpleDateFormat}, since sharing one between threads (as the application
+ * used to) produces wrong results.
+ * </p>
+ *
+ * <p>
+ * Run with -prof gc to also compare the bytes allocated per operation.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppointmentTimeBenchmark
+{
+    @Benchmark
+    public Date parseSimpleDateFormat() throws ParseException
+    {
+        return simpleDateFormat.parse(TEXT);
+    }
+
+    @Benchmark
+    public String formatSimpleDateFormat()
+    {
+        return simpleDateFormat.format(date);
+    }
+
+    @Benchmark
+    public int parseAppointmentTime()
+    {
+        return AppointmentTime.toEpochMinute(AppointmentTime.parse(TEXT));
+    }
+
+    @Benchmark
+    public String formatAppointmentTime()
+    {
+        return AppointmentTime.format(epochMinute);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    private final Date date = new Date(1_620_000_000_000L);
+    private final int epochMinute = 27_000_000;
+
+    private static final String TEXT = "2021-05-03 14:30";
+}
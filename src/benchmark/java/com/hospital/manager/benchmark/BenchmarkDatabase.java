@@ -0,0 +1,192 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hospital.manager.HospitalManagementApplication;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Starts the application (without its web server) against an embedded HSQLDB
+ * seeded with a configurable number of appointments, for use by the benchmarks.
+ * </p>
+ *
+ * <p>
+ * The data is seeded with plain JDBC batches so that large sizes (up to millions of
+ * appointments) can be loaded in reasonable time. The schema is created by the
+ * migrations and seeded by a first application context, which is then closed, and
+ * the application used by the benchmark is started on the seeded database. That
+ * way everything that is loaded at start-up (e.g. the appointment index) sees the
+ * seeded data.
+ * </p>
+ *
+ * <p>
+ * The seeded data is conflict free: appointment i is with doctor i % doctors,
+ * patient i % patients and in room i % {@value #ROOMS}, at {@link #FIRST_MINUTE} + i,
+ * and lasts {@value #DURATION} minute.
+ * There is one doctor for every 100 appointments and one patient for every 10, and
+ * the doctors and patients have the ids 1 to n.
+ * </p>
+ */
+@Slf4j
+public final class BenchmarkDatabase
+{
+    /**
+     * The number of distinct rooms appointments are seeded in.
+     */
+    public static final int ROOMS = 100;
+
+    /**
+     * The epoch minute of the first seeded appointment (2021-01-01 00:00).
+     */
+    public static final int FIRST_MINUTE = 26_830_080;
+
+    /**
+     * The duration in minutes of every seeded appointment. The benchmarks book
+     * appointments of the same duration, one minute after another.
+     */
+    public static final int DURATION = 1;
+
+    /**
+     * Start the application on a new database seeded with the given number of
+     * appointments.
+     * @param appointments The number of appointments to seed. This must be positive.
+     * @param properties Additional application properties, in the --key=value form.
+     * @return The started application. Close it with {@link #stop}.
+     */
+    public static ConfigurableApplicationContext start(final int appointments, final String... properties)
+    {
+        final String url = "jdbc:hsqldb:mem:benchmark" + DATABASE_COUNT.incrementAndGet();
+
+        try (ConfigurableApplicationContext seeding = run(url, properties))
+        {
+            seed(seeding.getBean(JdbcTemplate.class), appointments);
+        }
+
+        return run(url, properties);
+    }
+
+    /**
+     * Stop an application started by {@link #start} and drop its database.
+     * @param context The application to stop.
+     */
+    public static void stop(final ConfigurableApplicationContext context)
+    {
+        context.getBean(JdbcTemplate.class).execute("SHUTDOWN");
+        context.close();
+    }
+
+    /**
+     * @param appointments The number of seeded appointments.
+     * @return The number of seeded doctors.
+     */
+    public static int doctors(final int appointments)
+    {
+        return Math.max(1, appointments / 100);
+    }
+
+    /**
+     * @param appointments The number of seeded appointments.
+     * @return The number of seeded patients.
+     */
+    public static int patients(final int appointments)
+    {
+        return Math.max(1, appointments / 10);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private BenchmarkDatabase()
+    {
+        // This class only has static methods.
+    }
+
+    private static ConfigurableApplicationContext run(
+        final String url,
+        final String... properties)
+    {
+        //the properties are passed as command line arguments so that they take
+        //precedence over the ones in the application configuration files
+        final List<String> arguments = new ArrayList<>(List.of(
+            "--spring.datasource.url=" + url,
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN"));
+        arguments.addAll(List.of(properties));
+
+        return new SpringApplicationBuilder(HospitalManagementApplication.class)
+            .profiles("hsqldb")
+            .web(WebApplicationType.NONE)
+            .run(arguments.toArray(new String[0]));
+    }
+
+    private static void seed(final JdbcTemplate jdbc, final int appointments)
+    {
+        final int doctors = doctors(appointments);
+        final int patients = patients(appointments);
+
+        log.warn("Seeding {} doctor(s), {} patient(s) and {} appointment(s).", doctors, patients, appointments);
+
+        insert(jdbc, "INSERT INTO doctor (id, first_name, last_name, phone, version) VALUES (?, ?, ?, ?, 0)",
+            doctors, id -> new Object[] {id, "Doctor", "Number" + id, phone(id)});
+        insert(jdbc, "INSERT INTO patient (id, first_name, last_name, phone, address, doctor_id, version)"
+                + " VALUES (?, ?, ?, ?, ?, ?, 0)",
+            patients, id -> new Object[] {id, "Patient", "Number" + id, phone(id), id + " Main Street",
+                1 + id % doctors});
+        insert(jdbc, "INSERT INTO appointment (id, patient_id, doctor_id, room, start_minute, duration, version)"
+                + " VALUES (?, ?, ?, ?, ?, ?, 0)",
+            appointments, id -> new Object[] {id, 1 + (id - 1) % patients, 1 + (id - 1) % doctors,
+                (id - 1) % ROOMS, FIRST_MINUTE + id - 1, DURATION});
+
+        //make sure new rows get ids after the seeded ones
+        jdbc.execute("ALTER SEQUENCE doctor_sequence RESTART WITH " + (doctors + 1));
+        jdbc.execute("ALTER SEQUENCE patient_sequence RESTART WITH " + (patients + 1));
+        jdbc.execute("ALTER SEQUENCE appointment_sequence RESTART WITH " + (appointments + 1));
+    }
+
+    // Insert the rows with ids 1 to count in batches.
+    private static void insert(
+        final JdbcTemplate jdbc,
+        final String sql,
+        final int count,
+        final IntFunction<Object[]> row)
+    {
+        final List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+
+        for (int id = 1; id <= count; id++)
+        {
+            batch.add(row.apply(id));
+
+            if (batch.size() == BATCH_SIZE || id == count)
+            {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static String phone(final int id)
+    {
+        return String.format("%010d", id);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    // Each started application gets its own database, so trials do not share data.
+    private static final AtomicInteger DATABASE_COUNT = new AtomicInteger();
+
+    private static final int BATCH_SIZE = 10_000;
+}
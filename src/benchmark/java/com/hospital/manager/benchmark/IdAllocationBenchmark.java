@@ -0,0 +1,141 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hospital.manager.HospitalManagementApplication;
+import com.hospital.manager.configuration.PooledSequenceGenerator;
+import com.hospital.manager.doctor.Doctor;
+import com.hospital.manager.doctor.DoctorRepository;
+
+/**
+ * <p>
+ * Measures the number of inserts per second with ids fetched from the database one
+ * at a time (an allocation size of 1, the previous behaviour) and with ids reserved
+ * in blocks by the {@link com.hospital.manager.configuration.PooledSequenceGenerator}.
+ * </p>
+ *
+ * <p>
+ * By default this runs against the in-memory HSQLDB, where a database round trip is
+ * cheap, so the difference understates the gain against a physical database. To run
+ * against the PostgreSQL database configured in application.yml instead:
+ * </p>
+ *
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec -Djmh.args="IdAllocationBenchmark -p profile=default"
+ * </pre>
+ *
+ * <p>
+ * The schema migrations create the sequences with an increment of 50, so the
+ * sequences are altered to the allocation size of the run once they are migrated,
+ * and altered back when the run ends. The doctors inserted are removed again too.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IdAllocationBenchmark
+{
+    /**
+     * The number of ids reserved from the sequence at a time.
+     */
+    @Param({"1", "50"})
+    public int allocationSize;
+
+    /**
+     * The spring profile selecting the database to insert into.
+     */
+    @Param({"hsqldb"})
+    public String profile;
+
+    @Setup
+    public void start()
+    {
+        //the sequences must match the allocation size before Hibernate validates them
+        final FlywayMigrationStrategy migration = flyway -> {
+            flyway.migrate();
+            jdbc = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+            alterSequences(allocationSize);
+            jdbc.update("DELETE FROM doctor WHERE last_name = ?", LAST_NAME);
+        };
+
+        context = new SpringApplicationBuilder(HospitalManagementApplication.class)
+            .profiles(profile)
+            .web(WebApplicationType.NONE)
+            .initializers(context -> context.getBeanFactory().registerSingleton("benchmarkMigration", migration))
+            .run(
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hospital.id.allocation_size=" + allocationSize,
+                "--logging.level.root=WARN");
+        repository = context.getBean(DoctorRepository.class);
+    }
+
+    @TearDown
+    public void stop()
+    {
+        jdbc.update("DELETE FROM doctor WHERE last_name = ?", LAST_NAME);
+        alterSequences(PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE);
+        context.close();
+    }
+
+    /**
+     * @return The inserted doctor, so that the insert cannot be optimized away.
+     */
+    @Benchmark
+    public Doctor insert()
+    {
+        final Doctor doctor = new Doctor();
+        doctor.setFirstName("Gregory");
+        doctor.setLastName(LAST_NAME);
+        //phone numbers are unique
+        doctor.setPhone(String.format("%010d", ++inserted));
+
+        return repository.save(doctor);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private void alterSequences(final int increment)
+    {
+        for (final String sequence : SEQUENCES)
+        {
+            jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + increment);
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private ConfigurableApplicationContext context;
+    private DoctorRepository repository;
+    private JdbcTemplate jdbc;
+    private long inserted;
+
+    // The last name of every doctor inserted, by which they are removed again.
+    private static final String LAST_NAME = "IdAllocationBenchmark";
+
+    private static final String[] SEQUENCES = {"doctor_sequence", "patient_sequence", "appointment_sequence"};
+}
@@ -0,0 +1,74 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.hospital.manager.patient.Patient;
+import com.hospital.manager.patient.PatientService;
+
+/**
+ * Measures looking up a single patient through {@link PatientService#getPatient},
+ * against a database seeded with {@link #appointments} appointments (see
+ * {@link BenchmarkDatabase}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PatientServiceBenchmark
+{
+    /**
+     * The number of appointments seeded before the benchmark starts. One patient is
+     * seeded for every 10 appointments.
+     */
+    @Param({"1000"})
+    public int appointments;
+
+    @Setup
+    public void start()
+    {
+        context = BenchmarkDatabase.start(appointments);
+        service = context.getBean(PatientService.class);
+        patients = BenchmarkDatabase.patients(appointments);
+    }
+
+    @TearDown
+    public void stop()
+    {
+        BenchmarkDatabase.stop(context);
+    }
+
+    /**
+     * @return A random seeded patient.
+     */
+    @Benchmark
+    public Patient getPatient()
+    {
+        return service.getPatient(1L + ThreadLocalRandom.current().nextInt(patients));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private ConfigurableApplicationContext context;
+    private PatientService service;
+    private int patients;
+}
@@ -0,0 +1,167 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.manager.appointment.AppointmentController;
+import com.hospital.manager.patient.PatientController;
+
+/**
+ * <p>
+ * Measures the mapping of entities to the controllers' *ResponsePayload objects
+ * and their serialization by Jackson, against a database seeded with
+ * {@link #appointments} appointments (see {@link BenchmarkDatabase}).
+ * </p>
+ *
+ * <p>
+ * The controllers are called directly, without the web server. Their request
+ * payloads are private, so the payloads are created and the controllers are
+ * called reflectively. The
+ * patient lookups run inside a transaction, standing in for the open session the
+ * web server keeps while a response is written.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PayloadBenchmark
+{
+    /**
+     * The number of appointments seeded before the benchmark starts.
+     */
+    @Param({"1000"})
+    public int appointments;
+
+    /**
+     * The number of appointments requested per page.
+     */
+    @Param({"100"})
+    public int pageSize;
+
+    @Setup
+    public void start() throws Exception
+    {
+        context = BenchmarkDatabase.start(appointments);
+        appointmentController = context.getBean(AppointmentController.class);
+        patientController = context.getBean(PatientController.class);
+        mapper = context.getBean(ObjectMapper.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        patients = BenchmarkDatabase.patients(appointments);
+
+        appointmentGet = getMethod(AppointmentController.class);
+        patientGet = getMethod(PatientController.class);
+        pageRequest = newPayload(appointmentGet, null, 0L, pageSize, null, null, null, null);
+        page = (List<?>) appointmentGet.invoke(appointmentController, pageRequest);
+    }
+
+    @TearDown
+    public void stop()
+    {
+        BenchmarkDatabase.stop(context);
+    }
+
+    /**
+     * @return The serialized first page of appointments, read from the database and
+     *         mapped to payloads on each call.
+     */
+    @Benchmark
+    public byte[] getAppointmentPage() throws Exception
+    {
+        return mapper.writeValueAsBytes(appointmentGet.invoke(appointmentController, pageRequest));
+    }
+
+    /**
+     * @return The serialized first page of appointments, mapped and read only once.
+     */
+    @Benchmark
+    public byte[] serializeAppointmentPage() throws JsonProcessingException
+    {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    /**
+     * @return A random serialized patient, read from the database and mapped to a
+     *         payload on each call.
+     */
+    @Benchmark
+    public byte[] getPatient() throws Exception
+    {
+        final Object request = newPayload(patientGet, 1L + ThreadLocalRandom.current().nextInt(patients));
+
+        return transactionTemplate.execute(status -> {
+            try
+            {
+                return mapper.writeValueAsBytes(patientGet.invoke(patientController, request));
+            }
+            catch (final Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Find the public get method of a controller, which takes a private payload.
+    private static Method getMethod(final Class<?> controller)
+    {
+        for (final Method method : controller.getMethods())
+        {
+            if (method.getName().equals("get") && method.getParameterCount() == 1)
+            {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(controller + " has no get method.");
+    }
+
+    // Create an instance of the private payload taken by a controller method.
+    private static Object newPayload(final Method method, final Object... arguments) throws Exception
+    {
+        final Constructor<?> constructor = method.getParameterTypes()[0].getDeclaredConstructors()[0];
+        constructor.setAccessible(true);
+
+        return constructor.newInstance(arguments);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private ConfigurableApplicationContext context;
+    private AppointmentController appointmentController;
+    private PatientController patientController;
+    private ObjectMapper mapper;
+    private TransactionTemplate transactionTemplate;
+    private int patients;
+    private Method appointmentGet;
+    private Method patientGet;
+    private Object pageRequest;
+    private List<?> page;
+}
@@ -0,0 +1,202 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Service;
+
+import com.hospital.manager.appointment.Appointment;
+import com.hospital.manager.appointment.AppointmentTime;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <p>
+ * Computes the appointment reports used by the hospital managers from the latest
+ * {@link AppointmentSnapshot}, so a report never queries the database or loads an
+ * entity. A report reflects the appointments as they were when the snapshot was
+ * taken.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public final class AppointmentReports
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Count the appointments of each doctor on each day of a period.
+     * @param from The start of the period (inclusive). This cannot be null.
+     * @param to The end of the period (exclusive). This cannot be null.
+     * @return The number of appointments starting on each day, for every doctor with
+     *         at least one, ordered by day and then doctor id. This cannot be null.
+     */
+    public ReportResult<DoctorDayCount> appointmentsPerDoctorPerDay(final LocalDateTime from, final LocalDateTime to)
+    {
+        final AppointmentSnapshot snapshot = snapshots.current();
+        final List<DoctorDayCount> rows = new ArrayList<>();
+
+        //the appointments are ordered by start, so each day is counted in turn
+        final Map<Long, int[]> counts = new TreeMap<>();
+        int day = Integer.MIN_VALUE;
+
+        for (int i = snapshot.indexOf(minuteOf(from)), end = snapshot.indexOf(minuteOf(to)); i < end; i++)
+        {
+            final int appointmentDay = Math.floorDiv(snapshot.startMinute(i), MINUTES_PER_DAY);
+
+            if (appointmentDay != day)
+            {
+                addDay(day, counts, rows);
+                day = appointmentDay;
+            }
+            if (snapshot.doctorId(i) != NO_ID)
+            {
+                counts.computeIfAbsent(snapshot.doctorId(i), id -> new int[1])[0]++;
+            }
+        }
+        addDay(day, counts, rows);
+
+        return result(snapshot, from, to, rows);
+    }
+
+    /**
+     * Find how much of a period each room is booked for. Appointments that start
+     * before or end after the period only count for the minutes within it.
+     * @param from The start of the period (inclusive). This cannot be null.
+     * @param to The end of the period (exclusive). This cannot be null.
+     * @return The utilization of every room with at least one appointment in the
+     *         period, ordered by room. This cannot be null.
+     */
+    public ReportResult<RoomUtilization> roomUtilization(final LocalDateTime from, final LocalDateTime to)
+    {
+        final AppointmentSnapshot snapshot = snapshots.current();
+        final int start = minuteOf(from);
+        final int end = minuteOf(to);
+
+        //the appointment count and booked minutes of each room
+        final Map<Integer, long[]> rooms = new TreeMap<>();
+
+        //an appointment lasts at most a day, so earlier ones cannot reach the period
+        for (int i = snapshot.indexOf(start - Appointment.MAX_DURATION + 1), last = snapshot.indexOf(end);
+             i < last; i++)
+        {
+            final int appointmentStart = snapshot.startMinute(i);
+            final int overlap = Math.min(appointmentStart + snapshot.duration(i), end)
+                - Math.max(appointmentStart, start);
+
+            if (overlap > 0)
+            {
+                final long[] room = rooms.computeIfAbsent(snapshot.room(i), number -> new long[2]);
+                room[0]++;
+                room[1] += overlap;
+            }
+        }
+
+        final List<RoomUtilization> rows = new ArrayList<>(rooms.size());
+        for (final Map.Entry<Integer, long[]> room : rooms.entrySet())
+        {
+            rows.add(new RoomUtilization(room.getKey(), (int) room.getValue()[0], room.getValue()[1],
+                percentage(room.getValue()[1], (long) end - start)));
+        }
+
+        return result(snapshot, from, to, rows);
+    }
+
+    /**
+     * Count the appointments of each patient in a period.
+     * @param from The start of the period (inclusive). This cannot be null.
+     * @param to The end of the period (exclusive). This cannot be null.
+     * @param limit The most patients to return. This must be positive.
+     * @return The patients with the most appointments starting in the period, most
+     *         visits first, and then by ssn. This cannot be null.
+     */
+    public ReportResult<PatientVisitCount> patientVisitCounts(
+        final LocalDateTime from,
+        final LocalDateTime to,
+        final int limit)
+    {
+        final AppointmentSnapshot snapshot = snapshots.current();
+        final Map<Long, int[]> visits = new HashMap<>();
+
+        for (int i = snapshot.indexOf(minuteOf(from)), end = snapshot.indexOf(minuteOf(to)); i < end; i++)
+        {
+            if (snapshot.patientId(i) != NO_ID)
+            {
+                visits.computeIfAbsent(snapshot.patientId(i), id -> new int[1])[0]++;
+            }
+        }
+
+        final List<PatientVisitCount> rows = new ArrayList<>(visits.size());
+        for (final Map.Entry<Long, int[]> patient : visits.entrySet())
+        {
+            rows.add(new PatientVisitCount(patient.getKey(), patient.getValue()[0]));
+        }
+        rows.sort(Comparator.comparingInt(PatientVisitCount::getVisits).reversed()
+            .thenComparingLong(PatientVisitCount::getPatientId));
+
+        return result(snapshot, from, to, rows.size() > limit ? List.copyOf(rows.subList(0, limit)) : rows);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Add the counts of a day to the rows of the report, and start counting again.
+    private static void addDay(final int day, final Map<Long, int[]> counts, final List<DoctorDayCount> rows)
+    {
+        if (counts.isEmpty())
+        {
+            return;
+        }
+
+        final String date = LocalDate.ofEpochDay(day).toString();
+
+        for (final Map.Entry<Long, int[]> doctor : counts.entrySet())
+        {
+            rows.add(new DoctorDayCount(doctor.getKey(), date, doctor.getValue()[0]));
+        }
+        counts.clear();
+    }
+
+    private static <T> ReportResult<T> result(
+        final AppointmentSnapshot snapshot,
+        final LocalDateTime from,
+        final LocalDateTime to,
+        final List<T> rows)
+    {
+        return new ReportResult<>(
+            AppointmentTime.format(minuteOf(snapshot.getTakenAt())),
+            AppointmentTime.format(minuteOf(from)),
+            AppointmentTime.format(minuteOf(to)),
+            rows);
+    }
+
+    private static int minuteOf(final LocalDateTime dateTime)
+    {
+        return AppointmentTime.toEpochMinute(dateTime);
+    }
+
+    // The part as a percentage of the whole, to two decimals.
+    private static double percentage(final long part, final long whole)
+    {
+        return Math.round(part * 10_000.0 / whole) / 100.0;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentSnapshots snapshots;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // The doctor or patient id of an appointment without a doctor or patient.
+    private static final long NO_ID = 0L;
+}
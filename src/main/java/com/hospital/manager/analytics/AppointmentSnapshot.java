@@ -0,0 +1,229 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.hospital.manager.appointment.AppointmentTime;
+
+/**
+ * <p>
+ * A read-only copy of the appointment table taken at one point in time, held as one
+ * primitive array per column instead of one object per appointment. A million
+ * appointments take about 36 MB, and the reports scan the columns they need without
+ * loading any entity or touching the database.
+ * </p>
+ *
+ * <p>
+ * The appointments are ordered by start minute, so the ones in a date range are found
+ * with a binary search. An appointment without a doctor or patient has the doctor or
+ * patient id 0, which no doctor or patient has. A snapshot never changes, so it can
+ * be read by any number of threads.
+ * </p>
+ */
+public final class AppointmentSnapshot
+{
+    /**
+     * A snapshot without any appointment.
+     */
+    static final AppointmentSnapshot EMPTY = new AppointmentSnapshot(
+        AppointmentTime.toDateTime(0), 0, new long[0], new long[0], new long[0], new int[0], new int[0], new int[0]);
+
+    /**
+     * Create a snapshot from its columns, which must be ordered by start minute. The
+     * arrays are used as they are and must not be changed afterwards.
+     * @param takenAt When the appointment table was read.
+     * @param size The number of appointments. The arrays may be longer.
+     * @param ids The id of each appointment.
+     * @param doctorIds The doctor id of each appointment.
+     * @param patientIds The patient id of each appointment.
+     * @param startMinutes The start of each appointment, in minutes since 1970-01-01.
+     * @param durations The duration of each appointment, in minutes.
+     * @param rooms The room of each appointment.
+     */
+    AppointmentSnapshot(
+        final LocalDateTime takenAt,
+        final int size,
+        final long[] ids,
+        final long[] doctorIds,
+        final long[] patientIds,
+        final int[] startMinutes,
+        final int[] durations,
+        final int[] rooms)
+    {
+        this.takenAt = takenAt;
+        this.size = size;
+        this.ids = ids;
+        this.doctorIds = doctorIds;
+        this.patientIds = patientIds;
+        this.startMinutes = startMinutes;
+        this.durations = durations;
+        this.rooms = rooms;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * @return When the appointment table was read. This cannot be null.
+     */
+    public LocalDateTime getTakenAt()
+    {
+        return takenAt;
+    }
+
+    /**
+     * @return The number of appointments in this snapshot.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * @param minute An epoch minute.
+     * @return The index of the first appointment starting at or after the minute, or
+     *         {@link #size()} if there is none.
+     */
+    int indexOf(final int minute)
+    {
+        int low = 0;
+        int high = size;
+
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+
+            if (startMinutes[middle] < minute)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    long id(final int index)
+    {
+        return ids[index];
+    }
+
+    long doctorId(final int index)
+    {
+        return doctorIds[index];
+    }
+
+    long patientId(final int index)
+    {
+        return patientIds[index];
+    }
+
+    int startMinute(final int index)
+    {
+        return startMinutes[index];
+    }
+
+    int duration(final int index)
+    {
+        return durations[index];
+    }
+
+    int room(final int index)
+    {
+        return rooms[index];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AppointmentSnapshot(takenAt=" + takenAt + ", size=" + size + ")";
+    }
+
+    /**
+     * Collects the appointments of a new snapshot, which must be added in the order of
+     * their start minute.
+     */
+    static final class Builder
+    {
+        /**
+         * @param capacity The expected number of appointments. More can be added.
+         */
+        Builder(final int capacity)
+        {
+            final int initial = Math.max(capacity, 16);
+
+            ids = new long[initial];
+            doctorIds = new long[initial];
+            patientIds = new long[initial];
+            startMinutes = new int[initial];
+            durations = new int[initial];
+            rooms = new int[initial];
+        }
+
+        void add(
+            final long id,
+            final long doctorId,
+            final long patientId,
+            final int startMinute,
+            final int duration,
+            final int room)
+        {
+            if (size == ids.length)
+            {
+                final int capacity = size + (size >> 1);
+
+                ids = Arrays.copyOf(ids, capacity);
+                doctorIds = Arrays.copyOf(doctorIds, capacity);
+                patientIds = Arrays.copyOf(patientIds, capacity);
+                startMinutes = Arrays.copyOf(startMinutes, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                rooms = Arrays.copyOf(rooms, capacity);
+            }
+
+            ids[size] = id;
+            doctorIds[size] = doctorId;
+            patientIds[size] = patientId;
+            startMinutes[size] = startMinute;
+            durations[size] = duration;
+            rooms[size] = room;
+            size++;
+        }
+
+        /**
+         * @param takenAt When the appointment table was read.
+         * @return The snapshot of the appointments added. This builder must not be
+         *         used afterwards.
+         */
+        AppointmentSnapshot build(final LocalDateTime takenAt)
+        {
+            return new AppointmentSnapshot(takenAt, size, ids, doctorIds, patientIds, startMinutes, durations, rooms);
+        }
+
+        private int size;
+        private long[] ids;
+        private long[] doctorIds;
+        private long[] patientIds;
+        private int[] startMinutes;
+        private int[] durations;
+        private int[] rooms;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final LocalDateTime takenAt;
+    private final int size;
+    private final long[] ids;
+    private final long[] doctorIds;
+    private final long[] patientIds;
+    private final int[] startMinutes;
+    private final int[] durations;
+    private final int[] rooms;
+}
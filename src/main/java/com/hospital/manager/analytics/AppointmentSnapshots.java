@@ -0,0 +1,172 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Holds the latest {@link AppointmentSnapshot} and replaces it with a new one every
+ * hospital.snapshot.refresh-interval, so reports see appointment changes after at
+ * most that long. The table is read with a single query streamed through a
+ * forward-only cursor, without loading any entity.
+ * </p>
+ *
+ * <p>
+ * The snapshot is replaced as a whole, so a report always reads a consistent copy,
+ * while the next one is being built in the background.
+ * </p>
+ */
+@Slf4j
+@Component
+public final class AppointmentSnapshots
+{
+    /**
+     * @param dataSource The database the appointments are read from.
+     * @param transactionManager The transaction manager used to open the read-only
+     *                           transaction the appointments are read in.
+     * @param refreshInterval How long a snapshot is used before it is replaced.
+     */
+    public AppointmentSnapshots(
+        final DataSource dataSource,
+        final PlatformTransactionManager transactionManager,
+        @Value("${hospital.snapshot.refresh-interval:1m}") final Duration refreshInterval)
+    {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.refreshInterval = refreshInterval;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * @return The latest snapshot of the appointments. This cannot be null.
+     */
+    public AppointmentSnapshot current()
+    {
+        return current;
+    }
+
+    /**
+     * Read the appointment table again and make the result the current snapshot.
+     * @return The new snapshot. This cannot be null.
+     */
+    public AppointmentSnapshot refresh()
+    {
+        final long started = System.nanoTime();
+        final AppointmentSnapshot snapshot = read(
+            "SELECT COUNT(*) FROM appointment",
+            "SELECT id, doctor_id, patient_id, start_minute, duration, room FROM appointment"
+                + " ORDER BY start_minute");
+
+        current = snapshot;
+
+        log.info("Took a snapshot of {} appointment(s) in {} ms.", snapshot.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        return snapshot;
+    }
+
+    /**
+     * Read the appointments starting in a period straight from the database, for
+     * computations that cannot work on a snapshot up to a refresh interval old. The
+     * result does not replace the current snapshot.
+     * @param fromMinute The first epoch minute of the period (inclusive).
+     * @param toMinute The last epoch minute of the period (exclusive).
+     * @return A snapshot of the appointments starting in the period. This cannot be null.
+     */
+    public AppointmentSnapshot load(final int fromMinute, final int toMinute)
+    {
+        return read(
+            "SELECT COUNT(*) FROM appointment WHERE start_minute >= ? AND start_minute < ?",
+            "SELECT id, doctor_id, patient_id, start_minute, duration, room FROM appointment"
+                + " WHERE start_minute >= ? AND start_minute < ? ORDER BY start_minute",
+            fromMinute, toMinute);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Read the appointments returned by a query ordered by start minute, using the
+    // count query to size the columns. Both queries take the same arguments.
+    private AppointmentSnapshot read(final String countQuery, final String query, final Object... args)
+    {
+        final LocalDateTime takenAt = LocalDateTime.now();
+
+        return transactionTemplate.execute(status -> {
+            final Integer count = jdbc.queryForObject(countQuery, Integer.class, args);
+            final AppointmentSnapshot.Builder builder = new AppointmentSnapshot.Builder(count == null ? 0 : count);
+
+            //a missing doctor or patient is read as 0
+            jdbc.query(query,
+                row -> {
+                    builder.add(row.getLong(1), row.getLong(2), row.getLong(3), row.getInt(4), row.getInt(5),
+                        row.getInt(6));
+                },
+                args);
+            return builder.build(takenAt);
+        });
+    }
+
+    @PostConstruct
+    private void start()
+    {
+        refresh();
+
+        scheduler.scheduleWithFixedDelay(() -> {
+            try
+            {
+                refresh();
+            }
+            //keep the previous snapshot and try again at the next refresh
+            catch (final RuntimeException e)
+            {
+                log.warn("Could not refresh the appointment snapshot.", e);
+            }
+        }, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop()
+    {
+        scheduler.shutdownNow();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration refreshInterval;
+
+    // Replaced as a whole by each refresh.
+    private volatile AppointmentSnapshot current = AppointmentSnapshot.EMPTY;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "appointment-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The number of rows fetched from the database at a time.
+    private static final int FETCH_SIZE = 10_000;
+}
@@ -0,0 +1,351 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.hospital.manager.appointment.AppointmentChangedEvent;
+import com.hospital.manager.appointment.AppointmentService;
+import com.hospital.manager.appointment.AppointmentTime;
+
+/**
+ * <p>
+ * Computes the workload of every doctor and the use of every room over a period.
+ * The appointments of the period are read from the database in a single query into
+ * an {@link AppointmentSnapshot}, grouped by doctor or room, and the groups are
+ * aggregated in parallel on a pool of hospital.stats.parallelism threads.
+ * </p>
+ *
+ * <p>
+ * The statistics of a period are kept until an appointment is changed through the
+ * {@link AppointmentService}, so clients polling the same period are answered from
+ * memory. Only appointments starting in the period are counted, and their minutes
+ * after the end of the period are left out.
+ * </p>
+ */
+@Service
+public final class AppointmentStatistics
+{
+    /**
+     * @param snapshots Reads the appointments of a period.
+     * @param parallelism The number of threads aggregating the statistics, or 0 for
+     *                    one per processor.
+     * @param doubleShiftThreshold How long a doctor may be on duty on one day before
+     *                             the day is reported as a double shift.
+     */
+    public AppointmentStatistics(
+        final AppointmentSnapshots snapshots,
+        @Value("${hospital.stats.parallelism:0}") final int parallelism,
+        @Value("${hospital.stats.double-shift-threshold:12h}") final Duration doubleShiftThreshold)
+    {
+        this.snapshots = snapshots;
+        this.doubleShiftMinutes = doubleShiftThreshold.toMinutes();
+        this.pool = new ForkJoinPool(
+            parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+            forkJoinPool -> {
+                final ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("appointment-statistics-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Compute the workload of every doctor with an appointment in a period.
+     * @param from The start of the period (inclusive). This cannot be null.
+     * @param to The end of the period (exclusive). This cannot be null.
+     * @return The statistics of each doctor, ordered by doctor id. This cannot be null.
+     */
+    public ReportResult<DoctorStatistics> doctorStatistics(final LocalDateTime from, final LocalDateTime to)
+    {
+        return cached(doctors, from, to, (snapshot, group) -> {
+            final Schedule schedule = new Schedule(snapshot, group, minuteOf(to), doubleShiftMinutes);
+
+            return new DoctorStatistics(
+                snapshot.doctorId(group.rows[0]),
+                group.size,
+                schedule.bookedMinutes,
+                schedule.days,
+                schedule.onDutyMinutes,
+                percentage(schedule.bookedMinutes, schedule.onDutyMinutes),
+                schedule.gaps,
+                schedule.gapMinutes,
+                schedule.longestGap,
+                schedule.doubleShiftDays);
+        }, snapshot -> {
+            //appointments without a doctor are left out
+            final Map<Long, Rows> groups = group(snapshot, snapshot::doctorId);
+            groups.remove(NO_ID);
+            return groups;
+        }, Comparator.comparingLong(DoctorStatistics::getDoctorId));
+    }
+
+    /**
+     * Compute the use of every room with an appointment in a period.
+     * @param from The start of the period (inclusive). This cannot be null.
+     * @param to The end of the period (exclusive). This cannot be null.
+     * @return The statistics of each room, ordered by room. This cannot be null.
+     */
+    public ReportResult<RoomStatistics> roomStatistics(final LocalDateTime from, final LocalDateTime to)
+    {
+        final long length = (long) minuteOf(to) - minuteOf(from);
+
+        return cached(rooms, from, to, (snapshot, group) -> {
+            final Schedule schedule = new Schedule(snapshot, group, minuteOf(to), doubleShiftMinutes);
+
+            return new RoomStatistics(
+                snapshot.room(group.rows[0]),
+                group.size,
+                schedule.bookedMinutes,
+                percentage(schedule.bookedMinutes, length),
+                schedule.gaps,
+                schedule.gapMinutes,
+                schedule.longestGap);
+        }, snapshot -> group(snapshot, snapshot::room), Comparator.comparingInt(RoomStatistics::getRoom));
+    }
+
+    /**
+     * Forget the statistics computed so far, since an appointment has changed.
+     * @param event The change.
+     */
+    @EventListener
+    public void onAppointmentChanged(final AppointmentChangedEvent event)
+    {
+        changes.incrementAndGet();
+        doctors.clear();
+        rooms.clear();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Return the statistics of a period if they were computed since the last change,
+    // otherwise read the appointments of the period and aggregate each group of them
+    // on the pool.
+    private <T> ReportResult<T> cached(
+        final ConcurrentMap<Long, Cached<T>> cache,
+        final LocalDateTime from,
+        final LocalDateTime to,
+        final Aggregation<T> aggregation,
+        final Function<AppointmentSnapshot, Map<Long, Rows>> grouping,
+        final Comparator<T> order)
+    {
+        final long key = (long) minuteOf(from) << 32 | minuteOf(to) & 0xFFFF_FFFFL;
+
+        //read the number of changes first, so statistics computed while an appointment
+        //changes are never served after the change
+        final long generation = changes.get();
+        final Cached<T> hit = cache.get(key);
+        if (hit != null && hit.generation == generation)
+        {
+            return hit.result;
+        }
+
+        final AppointmentSnapshot snapshot = snapshots.load(minuteOf(from), minuteOf(to));
+        final Map<Long, Rows> groups = grouping.apply(snapshot);
+
+        final List<T> rows = pool.submit(() -> groups.values().parallelStream()
+            .map(group -> aggregation.apply(snapshot, group))
+            .sorted(order)
+            .collect(Collectors.toList()))
+            .join();
+
+        final ReportResult<T> result = new ReportResult<>(
+            AppointmentTime.format(minuteOf(snapshot.getTakenAt())),
+            AppointmentTime.format(minuteOf(from)),
+            AppointmentTime.format(minuteOf(to)),
+            rows);
+
+        //clients can ask for any period, so do not let the cache grow without bounds
+        if (cache.size() >= MAX_CACHED_PERIODS)
+        {
+            cache.clear();
+        }
+        cache.put(key, new Cached<>(generation, result));
+
+        return result;
+    }
+
+    // Group the rows of a snapshot by doctor or room, keeping them in start order.
+    private static Map<Long, Rows> group(final AppointmentSnapshot snapshot, final IntToLongFunction keyOf)
+    {
+        final Map<Long, Rows> groups = new HashMap<>();
+
+        for (int i = 0; i < snapshot.size(); i++)
+        {
+            groups.computeIfAbsent(keyOf.applyAsLong(i), key -> new Rows()).add(i);
+        }
+        return groups;
+    }
+
+    private static int minuteOf(final LocalDateTime dateTime)
+    {
+        return AppointmentTime.toEpochMinute(dateTime);
+    }
+
+    // The part as a percentage of the whole, to two decimals.
+    private static double percentage(final long part, final long whole)
+    {
+        return whole == 0 ? 0 : Math.round(part * 10_000.0 / whole) / 100.0;
+    }
+
+    @PreDestroy
+    private void stop()
+    {
+        pool.shutdownNow();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // Computes the statistics of one doctor or room from its group of rows.
+    @FunctionalInterface
+    private interface Aggregation<T>
+    {
+        T apply(AppointmentSnapshot snapshot, Rows group);
+    }
+
+    // The indices of the snapshot rows of one doctor or room, in start order.
+    private static final class Rows
+    {
+        void add(final int row)
+        {
+            if (size == rows.length)
+            {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        private int[] rows = new int[8];
+        private int size;
+    }
+
+    // The days, gaps and booked minutes of one doctor or room, walked in start order.
+    private static final class Schedule
+    {
+        Schedule(final AppointmentSnapshot snapshot, final Rows group, final int end, final long doubleShiftMinutes)
+        {
+            int day = 0;
+            int dayStart = 0;
+            int dayEnd = 0;
+
+            for (int i = 0; i < group.size; i++)
+            {
+                final int row = group.rows[i];
+                final int start = snapshot.startMinute(row);
+                final int finish = Math.min(start + snapshot.duration(row), end);
+                final int appointmentDay = Math.floorDiv(start, MINUTES_PER_DAY);
+
+                if (i == 0 || appointmentDay != day)
+                {
+                    if (i > 0)
+                    {
+                        closeDay(day, dayStart, dayEnd, doubleShiftMinutes);
+                    }
+                    day = appointmentDay;
+                    dayStart = start;
+                    dayEnd = finish;
+                    days++;
+                }
+                else
+                {
+                    if (start > dayEnd)
+                    {
+                        final int gap = start - dayEnd;
+                        gaps++;
+                        gapMinutes += gap;
+                        longestGap = Math.max(longestGap, gap);
+                    }
+                    dayEnd = Math.max(dayEnd, finish);
+                }
+                bookedMinutes += finish - start;
+            }
+            if (group.size > 0)
+            {
+                closeDay(day, dayStart, dayEnd, doubleShiftMinutes);
+            }
+        }
+
+        private void closeDay(final int day, final int dayStart, final int dayEnd, final long doubleShiftMinutes)
+        {
+            onDutyMinutes += dayEnd - dayStart;
+
+            if (dayEnd - dayStart > doubleShiftMinutes)
+            {
+                doubleShiftDays.add(LocalDate.ofEpochDay(day).toString());
+            }
+        }
+
+        private int days;
+        private long bookedMinutes;
+        private long onDutyMinutes;
+        private int gaps;
+        private long gapMinutes;
+        private int longestGap;
+        private final List<String> doubleShiftDays = new ArrayList<>();
+    }
+
+    // The statistics of a period, and the number of changes they were computed after.
+    private static final class Cached<T>
+    {
+        Cached(final long generation, final ReportResult<T> result)
+        {
+            this.generation = generation;
+            this.result = result;
+        }
+
+        private final long generation;
+        private final ReportResult<T> result;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentSnapshots snapshots;
+    private final long doubleShiftMinutes;
+    private final ForkJoinPool pool;
+
+    // The statistics computed since the last change, by period. The key holds the
+    // first and last epoch minute of the period.
+    private final ConcurrentMap<Long, Cached<DoctorStatistics>> doctors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Cached<RoomStatistics>> rooms = new ConcurrentHashMap<>();
+
+    // The number of appointment changes so far.
+    private final AtomicLong changes = new AtomicLong();
+
+    // The most periods whose statistics are kept at once, for doctors and for rooms.
+    private static final int MAX_CACHED_PERIODS = 256;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // The doctor id of an appointment without a doctor.
+    private static final long NO_ID = 0L;
+}
@@ -0,0 +1,32 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The number of appointments a doctor has on one day.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class DoctorDayCount
+{
+    /**
+     * The id of the doctor.
+     */
+    private final long doctorId;
+
+    /**
+     * The day, in the yyyy-MM-dd form.
+     */
+    private final String day;
+
+    /**
+     * The number of appointments of the doctor starting on the day.
+     */
+    private final int appointments;
+}
@@ -0,0 +1,71 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The workload of a doctor over a period. A doctor is on duty on a day from the start
+ * of their first appointment to the end of their last one.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class DoctorStatistics
+{
+    /**
+     * The id of the doctor.
+     */
+    private final long doctorId;
+
+    /**
+     * The number of appointments of the doctor starting in the period.
+     */
+    private final int appointments;
+
+    /**
+     * The number of minutes of the period the doctor is booked for.
+     */
+    private final long bookedMinutes;
+
+    /**
+     * The number of days the doctor has at least one appointment on.
+     */
+    private final int workingDays;
+
+    /**
+     * The number of minutes the doctor is on duty, over all of their working days.
+     */
+    private final long onDutyMinutes;
+
+    /**
+     * The booked minutes as a percentage of the minutes on duty.
+     */
+    private final double utilization;
+
+    /**
+     * The number of idle gaps between two appointments on the same day.
+     */
+    private final int gaps;
+
+    /**
+     * The number of idle minutes between appointments on the same day.
+     */
+    private final long gapMinutes;
+
+    /**
+     * The longest idle gap between two appointments on the same day, in minutes.
+     */
+    private final int longestGapMinutes;
+
+    /**
+     * The days, in the yyyy-MM-dd form, on which the doctor is on duty for longer
+     * than hospital.stats.double-shift-threshold. This cannot be null.
+     */
+    private final List<String> doubleShiftDays;
+}
@@ -0,0 +1,27 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The number of appointments a patient has in a period.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class PatientVisitCount
+{
+    /**
+     * The ssn of the patient.
+     */
+    private final long patientId;
+
+    /**
+     * The number of appointments of the patient starting in the period.
+     */
+    private final int visits;
+}
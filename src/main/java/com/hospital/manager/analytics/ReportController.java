@@ -0,0 +1,151 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.LocalDateTime;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Represents the REST endpoints that report on the appointments of a period. The
+ * reports are computed from an in-memory snapshot of the appointments (see
+ * {@link AppointmentSnapshots}), so they can be requested as often as needed without
+ * loading the database, and may miss the changes of the last refresh interval.
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Api(tags = "report")
+@RequestMapping(path = "report")
+public final class ReportController
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Allow a client to get the number of appointments of each doctor on each day.
+     * @param payload The period to report on.
+     * @return The appointments per doctor per day.
+     */
+    @GetMapping(path = "doctor-days")
+    @ApiOperation("Counts the appointments of each doctor on each day of a period")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The report was computed successfully"),
+        @ApiResponse(code = 400, message = "If the period is not valid")
+    })
+    public ReportResult<DoctorDayCount> doctorDays(final ReportRequestPayload payload)
+    {
+        log.info("Reporting the appointments per doctor per day pertaining to request={}", payload);
+
+        return reports.appointmentsPerDoctorPerDay(fromOf(payload), toOf(payload));
+    }
+
+    /**
+     * Allow a client to get how much of a period each room is booked for.
+     * @param payload The period to report on.
+     * @return The utilization of each room.
+     */
+    @GetMapping(path = "rooms")
+    @ApiOperation("Reports the utilization of each room over a period")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The report was computed successfully"),
+        @ApiResponse(code = 400, message = "If the period is not valid")
+    })
+    public ReportResult<RoomUtilization> rooms(final ReportRequestPayload payload)
+    {
+        log.info("Reporting the room utilization pertaining to request={}", payload);
+
+        return reports.roomUtilization(fromOf(payload), toOf(payload));
+    }
+
+    /**
+     * Allow a client to get the patients with the most appointments in a period.
+     * @param payload The period to report on and the number of patients to return.
+     * @return The visit count of each patient.
+     */
+    @GetMapping(path = "patient-visits")
+    @ApiOperation("Counts the appointments of each patient in a period")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The report was computed successfully"),
+        @ApiResponse(code = 400, message = "If the period or limit is not valid")
+    })
+    public ReportResult<PatientVisitCount> patientVisits(final ReportRequestPayload payload)
+    {
+        log.info("Reporting the patient visits pertaining to request={}", payload);
+
+        final int limit = payload.getLimit() == null ? DEFAULT_PATIENT_COUNT : payload.getLimit();
+        if (limit < 1 || limit > MAX_PATIENT_COUNT)
+        {
+            throw new FailedRequestException("The limit must be between 1 and " + MAX_PATIENT_COUNT
+                + ". Please try again.");
+        }
+
+        return reports.patientVisitCounts(fromOf(payload), toOf(payload), limit);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private static LocalDateTime fromOf(final ReportRequestPayload payload)
+    {
+        return ReportPeriod.from(payload.getFrom());
+    }
+
+    private static LocalDateTime toOf(final ReportRequestPayload payload)
+    {
+        return ReportPeriod.to(fromOf(payload), payload.getTo());
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    @Getter
+    @ToString
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when requesting a report.")
+    private static final class ReportRequestPayload
+    {
+        @ApiModelProperty(
+            value = "The start of the period (inclusive). Please enter in the form yyyy-MM-dd HH:mm."
+                + " Defaults to the start of today.",
+            position = 0)
+        private final String from;
+        @ApiModelProperty(
+            value = "The end of the period (exclusive). Please enter in the form yyyy-MM-dd HH:mm."
+                + " Defaults to 30 days after the start.",
+            position = 1)
+        private final String to;
+        @ApiModelProperty(
+            value = "The most patients to return, for the patient visits report. Defaults to 100, at most 10000.",
+            position = 2)
+        private final Integer limit;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentReports reports;
+
+    // The number of patients returned by the patient visits report by default, and at most.
+    private static final int DEFAULT_PATIENT_COUNT = 100;
+    private static final int MAX_PATIENT_COUNT = 10_000;
+}
@@ -0,0 +1,64 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import com.hospital.manager.appointment.AppointmentTime;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+/**
+ * Reads the period a client asks a report or statistics for, filling in the bounds
+ * the client left out and rejecting periods that are too long to compute.
+ */
+final class ReportPeriod
+{
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * @param from The start of the period as supplied by the client, or null.
+     * @return The start of the period, the start of today if none was supplied.
+     */
+    static LocalDateTime from(final String from)
+    {
+        return from == null ? LocalDate.now().atStartOfDay() : AppointmentTime.parse(from);
+    }
+
+    /**
+     * @param from The start of the period.
+     * @param to The end of the period as supplied by the client, or null.
+     * @return The end of the period, 30 days after its start if none was supplied.
+     * @throws FailedRequestException If the end is not after the start, or the period
+     *                                is too long.
+     */
+    static LocalDateTime to(final LocalDateTime from, final String to)
+    {
+        final LocalDateTime end = to == null ? from.plusDays(DEFAULT_DAYS) : AppointmentTime.parse(to);
+
+        if (!end.isAfter(from) || ChronoUnit.DAYS.between(from, end) >= MAX_DAYS)
+        {
+            throw new FailedRequestException("The end of the period must be after its start and less than "
+                + MAX_DAYS + " days later. Please try again.");
+        }
+        return end;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private ReportPeriod()
+    {
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    // The period used when the client does not supply an end, and the longest period
+    // a client may ask for.
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+}
@@ -0,0 +1,43 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The rows of a report over a period, together with the age of the data they were
+ * computed from.
+ * @param <T> The type of the rows.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class ReportResult<T>
+{
+    /**
+     * When the appointment snapshot the report was computed from was taken, in the
+     * yyyy-MM-dd HH:mm form. Changes made since then are not included.
+     */
+    private final String snapshotTakenAt;
+
+    /**
+     * The start of the period (inclusive), in the yyyy-MM-dd HH:mm form.
+     */
+    private final String from;
+
+    /**
+     * The end of the period (exclusive), in the yyyy-MM-dd HH:mm form.
+     */
+    private final String to;
+
+    /**
+     * The rows of the report. This cannot be null.
+     */
+    @ToString.Exclude
+    private final List<T> rows;
+}
@@ -0,0 +1,54 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * How a room is used over a period.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class RoomStatistics
+{
+    /**
+     * The room number.
+     */
+    private final int room;
+
+    /**
+     * The number of appointments in the room starting in the period.
+     */
+    private final int appointments;
+
+    /**
+     * The number of minutes of the period the room is booked for.
+     */
+    private final long bookedMinutes;
+
+    /**
+     * The booked minutes as a percentage of the length of the period.
+     */
+    private final double utilization;
+
+    /**
+     * The number of times the room stands empty between two appointments on the same
+     * day.
+     */
+    private final int gaps;
+
+    /**
+     * The number of minutes the room stands empty between appointments on the same day.
+     */
+    private final long gapMinutes;
+
+    /**
+     * The longest time the room stands empty between two appointments on the same
+     * day, in minutes.
+     */
+    private final int longestGapMinutes;
+}
@@ -0,0 +1,37 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * How much of a period a room is booked for.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class RoomUtilization
+{
+    /**
+     * The room number.
+     */
+    private final int room;
+
+    /**
+     * The number of appointments in the room that overlap the period.
+     */
+    private final int appointments;
+
+    /**
+     * The number of minutes of the period the room is booked for.
+     */
+    private final long bookedMinutes;
+
+    /**
+     * The booked minutes as a percentage of the length of the period.
+     */
+    private final double utilization;
+}
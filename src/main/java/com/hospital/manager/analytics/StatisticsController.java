@@ -0,0 +1,106 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.analytics;
+
+import java.time.LocalDateTime;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Represents the REST endpoints that report the workload of the doctors and the use
+ * of the rooms over a period, computed on the server instead of by clients reading
+ * every appointment. The statistics are up to date, and are computed again only
+ * after an appointment changes (see {@link AppointmentStatistics}).
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Api(tags = "stats")
+@RequestMapping(path = "stats")
+public final class StatisticsController
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Allow a client to get the workload of every doctor over a period.
+     * @param payload The period to compute the statistics of.
+     * @return The statistics of every doctor with an appointment in the period.
+     */
+    @GetMapping(path = "doctors")
+    @ApiOperation("Computes the load, idle gaps, double shifts and utilization of each doctor over a period")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The statistics were computed successfully"),
+        @ApiResponse(code = 400, message = "If the period is not valid")
+    })
+    public ReportResult<DoctorStatistics> doctors(final StatisticsRequestPayload payload)
+    {
+        log.info("Computing the doctor statistics pertaining to request={}", payload);
+
+        final LocalDateTime from = ReportPeriod.from(payload.getFrom());
+        return statistics.doctorStatistics(from, ReportPeriod.to(from, payload.getTo()));
+    }
+
+    /**
+     * Allow a client to get the use of every room over a period.
+     * @param payload The period to compute the statistics of.
+     * @return The statistics of every room with an appointment in the period.
+     */
+    @GetMapping(path = "rooms")
+    @ApiOperation("Computes the load, idle gaps and utilization of each room over a period")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The statistics were computed successfully"),
+        @ApiResponse(code = 400, message = "If the period is not valid")
+    })
+    public ReportResult<RoomStatistics> rooms(final StatisticsRequestPayload payload)
+    {
+        log.info("Computing the room statistics pertaining to request={}", payload);
+
+        final LocalDateTime from = ReportPeriod.from(payload.getFrom());
+        return statistics.roomStatistics(from, ReportPeriod.to(from, payload.getTo()));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    @Getter
+    @ToString
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when requesting statistics.")
+    private static final class StatisticsRequestPayload
+    {
+        @ApiModelProperty(
+            value = "The start of the period (inclusive). Please enter in the form yyyy-MM-dd HH:mm."
+                + " Defaults to the start of today.",
+            position = 0)
+        private final String from;
+        @ApiModelProperty(
+            value = "The end of the period (exclusive). Please enter in the form yyyy-MM-dd HH:mm."
+                + " Defaults to 30 days after the start.",
+            position = 1)
+        private final String to;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentStatistics statistics;
+}
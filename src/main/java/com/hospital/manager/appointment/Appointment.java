@@ -3,16 +3,22 @@
 */
 package com.hospital.manager.appointment;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
-import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import com.hospital.manager.doctor.Doctor;
 import com.hospital.manager.patient.Patient;
@@ -23,25 +29,77 @@ import lombok.Setter;
 import lombok.ToString;
 
 /**
- * This class represents an appointment within the Hospital Management System.
+ * This class represents an appointment within the Hospital Management System. An
+ * appointment takes a doctor and a room from its start for its duration, and the
+ * appointments of a doctor or a room never overlap. The database enforces this as
+ * the final guard against double bookings: through exclusion constraints on
+ * PostgreSQL and triggers on HSQLDB (see the V2__reject_overlapping_appointments.sql
+ * migration of each database), in addition to the unique constraints below.
  */
 @Entity
+@Table(
+    indexes = {
+        @Index(name = "appointment_start_idx", columnList = "start_minute, id"),
+        @Index(name = "appointment_doctor_start_idx", columnList = "doctor_id, start_minute, id"),
+        @Index(name = "appointment_patient_start_idx", columnList = "patient_id, start_minute, id")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "appointment_doctor_date_key", columnNames = {"doctor_id", "start_minute"}),
+        @UniqueConstraint(name = "appointment_room_date_key", columnNames = {"room", "start_minute"})
+    })
 @Getter
 @Setter
 @ToString
 @NoArgsConstructor
 public final class Appointment
 {
+    /**
+     * The duration of an appointment, in minutes, when none is given.
+     */
+    public static final int DEFAULT_DURATION = 30;
+
+    /**
+     * The longest duration of an appointment, in minutes. The database overlap checks
+     * rely on this bound to only look at the appointments that start in the day
+     * before a new appointment.
+     */
+    public static final int MAX_DURATION = 24 * 60;
+
     /**
      * @return The formatted string representation of the {@link #getDate()} value.
-     *         The string returned will be in the 'yyyy-MM-dd hh:mm' format. This
+     *         The string returned will be in the 'yyyy-MM-dd HH:mm' format. This
      *         cannot be null.
      */
     String getFormattedDate()
     {
-        // The date cannot be null on an appointment, so the following operation
-        // should always succeed.
-        return FORMATTER.format(date);
+        return AppointmentTime.format(startMinute);
+    }
+
+    /**
+     * @return The date and time when this appointment is scheduled. This cannot be
+     *         null.
+     */
+    public LocalDateTime getDate()
+    {
+        return AppointmentTime.toDateTime(startMinute);
+    }
+
+    /**
+     * @param date The date and time when this appointment is scheduled. This cannot
+     *             be null. Seconds and smaller units are dropped.
+     */
+    public void setDate(final LocalDateTime date)
+    {
+        startMinute = AppointmentTime.toEpochMinute(date);
+    }
+
+    /**
+     * @return The minute this appointment ends at (exclusive), as the number of
+     *         minutes since 1970-01-01 00:00.
+     */
+    public int getEndMinute()
+    {
+        return startMinute + duration;
     }
 
     /**
@@ -50,7 +108,10 @@ public final class Appointment
      * yet.
      */
     @Id
-    @SequenceGenerator(name = "appointment_sequence", allocationSize = 1)
+    @GenericGenerator(
+        name = "appointment_sequence",
+        strategy = "com.hospital.manager.configuration.PooledSequenceGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "appointment_sequence"))
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_sequence")
     private long id;
 
@@ -69,19 +130,29 @@ public final class Appointment
     private Doctor doctor;
 
     /**
-     * The date and time when this appointment is scheduled. This cannot be null.
+     * The date and time when this appointment is scheduled, stored as the number of
+     * minutes since 1970-01-01 00:00 (see {@link AppointmentTime}). Storing a
+     * primitive keeps the column compact and lets conflict checks compare integers.
+     */
+    @Column(name = "start_minute", nullable = false)
+    private int startMinute;
+
+    /**
+     * The length of this appointment in minutes, between 1 and {@link #MAX_DURATION}.
      */
     @Column(nullable = false)
-    private Date date;
+    private int duration = DEFAULT_DURATION;
 
     /**
      * The room number for where this appointment takes place. This cannot be null.
      */
     private int room;
 
-    // A date formatter used to produce string representations for the date objects
-    // contained within this class. This formatter captures the date and time (
-    // to the minute only). This does not take into account timezones.
-    private static final SimpleDateFormat FORMATTER
-        = new SimpleDateFormat("yyyy-MM-dd hh:mm");
+    /**
+     * The number of times this appointment has been changed. Hibernate checks and
+     * increments it on every update, so a change based on an outdated copy of this
+     * appointment fails instead of overwriting a concurrent change.
+     */
+    @Version
+    private long version;
 }
\ No newline at end of file
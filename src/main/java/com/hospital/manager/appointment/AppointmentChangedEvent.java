@@ -0,0 +1,72 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * <p>
+ * Published by the {@link AppointmentService} after an appointment has been booked,
+ * cancelled or moved, once the change is saved. Listeners run on the thread of the
+ * request that made the change, so they must be quick and must not throw.
+ * </p>
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class AppointmentChangedEvent
+{
+    /**
+     * @param doctorId The id of a doctor, or null for any doctor.
+     * @param room A room, or null for any room.
+     * @return True if the appointment was or is now with the doctor in the room.
+     */
+    public boolean concerns(final Long doctorId, final Integer room)
+    {
+        return matches(previous, doctorId, room) || matches(current, doctorId, room);
+    }
+
+    /**
+     * The kinds of change.
+     */
+    public enum Type
+    {
+        BOOKED,
+        CANCELLED,
+        RESCHEDULED
+    }
+
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+
+    /**
+     * The id of the appointment that changed.
+     */
+    private final long appointmentId;
+
+    /**
+     * The appointment before the change, or null if it was booked. The patient id of a
+     * cancelled appointment is not known, and is null.
+     */
+    private final AppointmentSummary previous;
+
+    /**
+     * The appointment after the change, or null if it was cancelled.
+     */
+    private final AppointmentSummary current;
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private static boolean matches(final AppointmentSummary appointment, final Long doctorId, final Integer room)
+    {
+        return appointment != null
+            && (doctorId == null || doctorId.equals(appointment.getDoctorId()))
+            && (room == null || room == appointment.getRoom());
+    }
+}
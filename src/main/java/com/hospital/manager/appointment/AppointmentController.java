@@ -5,7 +5,12 @@ package com.hospital.manager.appointment;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import com.hospital.manager.cache.ConditionalResponses;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+import com.hospital.manager.export.NdjsonExporter;
 import com.hospital.manager.exception.CustomException.NotFoundException;
+import com.hospital.manager.lookup.BatchLookup;
+import com.hospital.manager.lookup.LookupResult;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiModel;
@@ -15,20 +20,26 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -50,9 +61,18 @@ public final class AppointmentController
     // :: Public Interface
     /**
      * <p>
-     *     Allow a client to get a list of all {@link Appointment}.
-     * </p>>
-     * @return The list of all appointments.
+     *     Allow a client to get a page of {@link Appointment}, optionally filtered by
+     *     doctor, patient and date range, or a single appointment by id.
+     * </p>
+     * <p>
+     *     Pages are ordered by date and then appointment id. To get the next page, pass
+     *     the date and id of the last appointment returned as the afterDate and afterId
+     *     of the next request.
+     * </p>
+     * @param payload The payload containing the id or the page and filters to apply.
+     * @param request The request, whose If-None-Match header may hold the version the
+     *                client already has.
+     * @return The list of appointments, with their version as the ETag.
      */
     @GetMapping
     @ApiOperation("Retrieves a list of appointments.")
@@ -60,49 +80,104 @@ public final class AppointmentController
         @ApiResponse(
             code = 200,
             message = "If the appointments were successfully retrieved."),
+        @ApiResponse(
+            code = 304,
+            message = "If the appointments did not change since the version in If-None-Match."),
+        @ApiResponse(
+            code = 400,
+            message = "If the id does not belong to any appointment or the page requested is not valid."
+                + " This never carries an ETag."),
         @ApiResponse(
             code = 404,
             message = "If no appointments corresponded to the request criteria supplied.")
     })
-    public List<AppointmentResponsePayload> get(final RetrievalRequestPayload payload)
+    public ResponseEntity<List<AppointmentResponsePayload>> get(
+        final RetrievalRequestPayload payload,
+        final WebRequest request)
     {
         log.info("Attempting to retrieve the appointment data pertaining to request={}.",
             payload);
 
-        // If the client does not supply a specific appointment id, then return all
-        // the appointments we have.
-        // TODO: Pagination will be required once the appointment data reaches a
-        //       certain volume.
+        // If the client does not supply a specific appointment id, then return the
+        // requested page of the appointments we have.
         if(payload.getId() == null)
         {
+            final int limit = payload.getLimit() == null ? DEFAULT_PAGE_SIZE : payload.getLimit();
+
+            if(limit < 1 || limit > MAX_PAGE_SIZE)
+            {
+                throw new FailedRequestException("The limit must be between 1 and " + MAX_PAGE_SIZE +
+                        ". Please try again.");
+            }
+
+            if((payload.getAfterDate() == null) != (payload.getAfterId() == null))
+            {
+                throw new FailedRequestException("Please supply both the afterDate and the afterId of the last" +
+                        " appointment of the previous page, or neither for the first page.");
+            }
+
+            final LocalDateTime afterDate = payload.getAfterDate() == null
+                ? null
+                : AppointmentTime.parse(payload.getAfterDate());
+            final LocalDateTime from = payload.getFrom() == null ? null : AppointmentTime.parse(payload.getFrom());
+            final LocalDateTime to = payload.getTo() == null ? null : AppointmentTime.parse(payload.getTo());
+
+            // Answer 304 Not Modified without reading the appointments if the client
+            // already has the latest version. Any change to an appointment changes the
+            // version of every page. The version is read first, so a change made while
+            // the page is read makes it out of date.
+            final String version = service.getAppointmentsVersion();
+            if(ConditionalResponses.isNotModified(request, version))
+            {
+                return ConditionalResponses.notModified(version);
+            }
+
             final List<AppointmentResponsePayload> results = new ArrayList<>();
 
-            // Retrieve all known appointments to return to the client.
-            final List<Appointment> appointments = service.getAppointments();
+            // Retrieve the requested page of appointments to return to the client.
+            final List<AppointmentSummary> appointments = service.getAppointments(
+                afterDate,
+                payload.getAfterId() == null ? 0L : payload.getAfterId(),
+                payload.getDoctorId(),
+                payload.getPatientId(),
+                from,
+                to,
+                limit);
 
             log.info("Found {} result(s). Returning them.", appointments.size());
 
-            for(final Appointment currentAppointment : appointments)
+            for(final AppointmentSummary currentAppointment : appointments)
             {
                 results.add(new AppointmentResponsePayload(currentAppointment));
             }
 
-            return Collections.unmodifiableList(results);
+            return ConditionalResponses.ok(Collections.unmodifiableList(results), version);
+        }
+
+        // Answer 304 Not Modified from the version of the appointment alone, so that
+        // the appointment is only loaded when the client does not have it yet. This
+        // fails if there is no such appointment.
+        final long current = service.readAppointmentVersion(payload.getId());
+        final String known = service.getAppointmentVersion(payload.getId(), current);
+        if(ConditionalResponses.isNotModified(request, known))
+        {
+            return ConditionalResponses.notModified(known);
         }
 
         // Retrieve the specific appointment using the supplied appointment id.
         final Appointment appointment = service.getAppointment(payload.getId());
 
         // If that specific appointment is found, then return it as the single entry
-        // in a list.
+        // in a list, labelled with the version of the appointment that is returned.
         if(appointment != null)
         {
+            final String version = service.getAppointmentVersion(appointment);
             final AppointmentResponsePayload responsePayload
                 = new AppointmentResponsePayload(appointment);
 
             log.info("Returning appointment={}.", responsePayload);
 
-            return Collections.unmodifiableList(List.of(responsePayload));
+            return ConditionalResponses.ok(Collections.unmodifiableList(List.of(responsePayload)), version);
         }
 
         // No appointment was found, return an empty list for now.
@@ -111,6 +186,139 @@ public final class AppointmentController
                 "and try again");
     }
 
+    /**
+     * <p>
+     *     Allow a client to get several {@link Appointment} by id in one call, read in
+     *     a single query.
+     * </p>
+     * @param payload The payload containing the ids of the appointments to return.
+     * @return The appointments in the order their ids were supplied, and the ids that
+     *         do not belong to any appointment.
+     */
+    @GetMapping(path = "lookup")
+    @ApiOperation("Retrieves several appointments by id.")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "If the appointments that exist were successfully retrieved."),
+        @ApiResponse(
+            code = 400,
+            message = "If no ids or more than " + BatchLookup.MAX_IDS + " ids were supplied.")
+    })
+    public LookupResult<AppointmentResponsePayload> lookup(final LookupRequestPayload payload)
+    {
+        final LookupResult<AppointmentResponsePayload> result = BatchLookup.find(
+            payload.getIds(),
+            ids -> {
+                final List<AppointmentResponsePayload> results = new ArrayList<>(ids.size());
+                for (final AppointmentSummary appointment : service.getAppointmentSummaries(ids))
+                {
+                    results.add(new AppointmentResponsePayload(appointment));
+                }
+                return results;
+            },
+            AppointmentResponsePayload::getId);
+
+        log.info("Found {} of the requested appointment(s), {} missing.",
+            result.getResults().size(), result.getMissingIds().size());
+
+        return result;
+    }
+
+    /**
+     * <p>
+     *     Allow a client to find the earliest times at which a doctor, a room or both
+     *     are free, instead of trying one booking after another.
+     * </p>
+     * @param payload The payload containing the doctor and room, the period to search
+     *                and the length and number of slots to find.
+     * @return The free slots, earliest first.
+     */
+    @GetMapping(path = "slots")
+    @ApiOperation("Finds the next free time slots of a doctor, a room or both.")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "If the search was successful. The list is empty if no slot is free."),
+        @ApiResponse(
+            code = 400,
+            message = "If neither a doctor nor a room was supplied, or the search criteria are invalid.")
+    })
+    public List<SlotResponsePayload> slots(final SlotRequestPayload payload)
+    {
+        log.info("Searching for free slots pertaining to request={}.", payload);
+
+        final int duration = payload.getDuration() == null ? DEFAULT_SLOT_DURATION : payload.getDuration();
+        final int limit = payload.getLimit() == null ? DEFAULT_SLOT_COUNT : payload.getLimit();
+
+        if (duration < 1 || duration > MAX_SLOT_DURATION)
+        {
+            throw new FailedRequestException("The duration must be between 1 and " + MAX_SLOT_DURATION +
+                    " minutes. Please try again.");
+        }
+        if (limit < 1 || limit > MAX_SLOT_COUNT)
+        {
+            throw new FailedRequestException("The limit must be between 1 and " + MAX_SLOT_COUNT +
+                    ". Please try again.");
+        }
+
+        // Search from now, for a week, unless the client asks for another period.
+        final LocalDateTime from = payload.getFrom() == null
+            ? LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES)
+            : AppointmentTime.parse(payload.getFrom());
+        final LocalDateTime to = payload.getTo() == null
+            ? from.plusDays(DEFAULT_SEARCH_DAYS)
+            : AppointmentTime.parse(payload.getTo());
+
+        final List<SlotResponsePayload> results = new ArrayList<>();
+        for (final LocalDateTime start
+            : service.findAvailableSlots(payload.getDoctorId(), payload.getRoom(), from, to, duration, limit))
+        {
+            results.add(new SlotResponsePayload(payload.getDoctorId(), payload.getRoom(), start, duration));
+        }
+
+        log.info("Found {} free slot(s). Returning them.", results.size());
+
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * <p>
+     *     Allow a client to be told about every {@link Appointment} booked, cancelled or
+     *     moved, instead of polling for changes. The changes are pushed as Server-Sent
+     *     Events named booked, cancelled and rescheduled, each holding the appointment
+     *     before and after the change. A client that falls behind is sent a resync
+     *     event and disconnected, after which it should load the appointments again.
+     * </p>
+     * @param payload The payload containing the doctor and room to follow.
+     * @return The stream of changes.
+     */
+    @GetMapping(path = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("Streams the changes to the appointments of a doctor, a room, or both.")
+    public SseEmitter events(final EventsRequestPayload payload)
+    {
+        log.info("Subscribing to the appointment changes pertaining to request={}.", payload);
+
+        return subscriptions.subscribe(payload.getDoctorId(), payload.getRoom());
+    }
+
+    /**
+     * <p>
+     *     Allow a client to export every {@link Appointment} as newline-delimited JSON.
+     *     The appointments are streamed from the database as they are written, so
+     *     the export does not need to fit in memory.
+     * </p>
+     * @return The response streaming one appointment per line.
+     */
+    @GetMapping(path = "export", produces = NdjsonExporter.NDJSON)
+    @ApiOperation("Exports all appointments as newline-delimited JSON.")
+    public ResponseEntity<StreamingResponseBody> export()
+    {
+        log.info("Exporting all appointments.");
+
+        return exporter.export(service::streamAppointments, AppointmentResponsePayload::new);
+    }
+
     /**
      * <p>
      *     Allow a client to update an {@link Appointment} room or date.
@@ -119,11 +327,11 @@ public final class AppointmentController
      * @return The appointments new information.
      */
     @PutMapping
-    public AppointmentResponsePayload update(final UpdateRequestPayload payload) throws Exception{
+    public AppointmentResponsePayload update(final UpdateRequestPayload payload){
 
         //if new information is not null, change it and update isSuccessful
         if (payload.getDate() != null){
-            service.changeDate(payload.getId(),FORMATTER.parse(payload.getDate()));
+            service.changeDate(payload.getId(),AppointmentTime.parse(payload.getDate()));
         }
         if (payload.getRoom() != null){
             service.changeRoom(payload.getId(),payload.getRoom());
@@ -144,13 +352,55 @@ public final class AppointmentController
      * @return The status code indicating if the appointment was successfully booked.
      */
     @PostMapping
-    public HttpStatus create(final CreateRequestPayload payload) throws Exception
+    public HttpStatus create(final CreateRequestPayload payload)
     {
         return service.book(
             payload.getSsn(),
             payload.getDoctorId(),
-            FORMATTER.parse(payload.getDate()),
-            payload.getRoom());
+            AppointmentTime.parse(payload.getDate()),
+            payload.getRoom(),
+            durationOf(payload));
+    }
+
+    /**
+     * <p>
+     *     Allow a client to book many {@link Appointment} in a single request. Each
+     *     appointment is either booked, rejected because of a conflict or rejected as
+     *     invalid, independently of the others.
+     * </p>
+     * @param payloads The appointments to book.
+     * @return The result of each booking, in the same order as the payloads.
+     */
+    @PostMapping(path = "batch")
+    @ApiOperation("Books a batch of appointments.")
+    public List<BatchResultPayload> createBatch(@RequestBody final List<CreateRequestPayload> payloads)
+    {
+        if (payloads.size() > MAX_BATCH_SIZE)
+        {
+            throw new FailedRequestException("At most " + MAX_BATCH_SIZE + " appointments can be booked at once. " +
+                    "Please split the batch and try again.");
+        }
+
+        log.info("Attempting to book a batch of {} appointment(s).", payloads.size());
+
+        final List<BookingRequest> requests = new ArrayList<>(payloads.size());
+        for (final CreateRequestPayload payload : payloads)
+        {
+            requests.add(new BookingRequest(
+                payload.getSsn(),
+                payload.getDoctorId(),
+                parseDate(payload.getDate()),
+                payload.getRoom(),
+                durationOf(payload)));
+        }
+
+        final List<BatchResultPayload> results = new ArrayList<>(requests.size());
+        for (final BookingResult result : service.bookAll(requests))
+        {
+            results.add(new BatchResultPayload(result));
+        }
+
+        return Collections.unmodifiableList(results);
     }
 
     /**
@@ -171,18 +421,100 @@ public final class AppointmentController
     @Getter
     @ToString
     @JsonIgnoreProperties(ignoreUnknown = true)
-    @NoArgsConstructor
+    @RequiredArgsConstructor
     @ApiModel(
         description = "The request details supplied when retrieving existing appointment details.")
     private static final class RetrievalRequestPayload
     {
         @ApiModelProperty(
             value = "The unique, database identifier for the appointment to retrieve. "
-                + "If null, then all appointments within the database are returned.",
+                + "If null, then a page of the appointments within the database is returned.",
             required = false,
             example = "1024",
             position = 0)
-        private Long id;
+        private final Long id;
+        @ApiModelProperty(
+            value = "The date of the last appointment of the previous page, to get the next page. "
+                + "Please enter in the form yyyy-MM-dd HH:mm",
+            position = 1)
+        private final String afterDate;
+        @ApiModelProperty(
+            value = "The id of the last appointment of the previous page, to get the next page.",
+            example = "1024",
+            position = 2)
+        private final Long afterId;
+        @ApiModelProperty(
+            value = "The maximum number of appointments to return. Defaults to 100, at most 1000.",
+            example = "100",
+            position = 3)
+        private final Integer limit;
+        @ApiModelProperty(value = "Only return the appointments of this doctor.", position = 4)
+        private final Long doctorId;
+        @ApiModelProperty(value = "Only return the appointments of this patient.", position = 5)
+        private final Long patientId;
+        @ApiModelProperty(
+            value = "Only return appointments on or after this date. Please enter in the form yyyy-MM-dd HH:mm",
+            position = 6)
+        private final String from;
+        @ApiModelProperty(
+            value = "Only return appointments before this date. Please enter in the form yyyy-MM-dd HH:mm",
+            position = 7)
+        private final String to;
+    }
+
+    @Getter
+    @ToString
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when retrieving several appointments by id.")
+    private static final class LookupRequestPayload
+    {
+        @ApiModelProperty(
+            value = "The unique, database identifiers of the appointments to retrieve, separated by commas.",
+            required = true,
+            example = "1,2,3")
+        private final String ids;
+    }
+
+    @Getter
+    @ToString
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when searching for free time slots.")
+    private static final class SlotRequestPayload
+    {
+        @ApiModelProperty(value = "The doctor that must be free. Either a doctor or a room is required.", position = 0)
+        private final Long doctorId;
+        @ApiModelProperty(value = "The room that must be free. Either a doctor or a room is required.", position = 1)
+        private final Integer room;
+        @ApiModelProperty(
+            value = "The earliest start of a slot, defaults to now. Please enter in the form yyyy-MM-dd HH:mm",
+            position = 2)
+        private final String from;
+        @ApiModelProperty(
+            value = "The time by which a slot must have ended, defaults to a week after from. "
+                + "Please enter in the form yyyy-MM-dd HH:mm",
+            position = 3)
+        private final String to;
+        @ApiModelProperty(value = "The length of each slot in minutes. Defaults to 30.", example = "30", position = 4)
+        private final Integer duration;
+        @ApiModelProperty(
+            value = "The maximum number of slots to return. Defaults to 10, at most 100.",
+            example = "10",
+            position = 5)
+        private final Integer limit;
+    }
+
+    @Getter
+    @ToString
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when subscribing to appointment changes.")
+    private static final class EventsRequestPayload
+    {
+        @ApiModelProperty(value = "Only follow the appointments of this doctor. Defaults to every doctor.", position = 0)
+        private final Long doctorId;
+        @ApiModelProperty(value = "Only follow the appointments in this room. Defaults to every room.", position = 1)
+        private final Integer room;
     }
 
     @ToString
@@ -196,23 +528,25 @@ public final class AppointmentController
         private final long ssn;
         @ApiModelProperty(value = "The attending doctors id")
         private final long doctorId;
-        @ApiModelProperty(value = "The appointments date. Please enter in the form yyyy-MM-dd hh:mm")
+        @ApiModelProperty(value = "The appointments date. Please enter in the form yyyy-MM-dd HH:mm")
         private final String date;
         @ApiModelProperty(value = "The room for the appointment")
         private final int room;
+        @ApiModelProperty(value = "The length of the appointment in minutes. Defaults to 30.", example = "30")
+        private final Integer duration;
     }
 
     @Getter
     @ToString
     @JsonIgnoreProperties(ignoreUnknown = true)
-    @NoArgsConstructor
+    @RequiredArgsConstructor
     @ApiModel(description = "The request details supplied when deleting an appointment")
     private static final class DeleteRequestPayload{
         @ApiModelProperty(
                 value = "The unique, database identifier for the appointment to delete. This cannot be null",
                 required = true,
                 example = "1024")
-        private Long id;
+        private final long id;
 
     }
 
@@ -248,6 +582,17 @@ public final class AppointmentController
                 ? appointment.getDoctor().getId() : null;
             room = appointment.getRoom();
             date = appointment.getFormattedDate();
+            duration = appointment.getDuration();
+        }
+
+        private AppointmentResponsePayload(final AppointmentSummary appointment)
+        {
+            id = appointment.getId();
+            patientId = appointment.getPatientId();
+            doctorId = appointment.getDoctorId();
+            room = appointment.getRoom();
+            date = appointment.getFormattedDate();
+            duration = appointment.getDuration();
         }
 
         private final long id;
@@ -255,18 +600,99 @@ public final class AppointmentController
         private final Long doctorId;
         private final int room;
         private final String date;
+        private final int duration;
+    }
+
+    @ToString
+    @Getter
+    @ApiModel(description = "A free time slot.")
+    private static final class SlotResponsePayload
+    {
+        private SlotResponsePayload(final Long doctorId, final Integer room, final LocalDateTime start,
+            final int duration)
+        {
+            this.doctorId = doctorId;
+            this.room = room;
+            this.start = AppointmentTime.format(AppointmentTime.toEpochMinute(start));
+            this.end = AppointmentTime.format(AppointmentTime.toEpochMinute(start) + duration);
+        }
+
+        @ApiModelProperty(value = "The doctor that is free, if a doctor was searched for.")
+        private final Long doctorId;
+        @ApiModelProperty(value = "The room that is free, if a room was searched for.")
+        private final Integer room;
+        @ApiModelProperty(value = "The start of the slot, in the form yyyy-MM-dd HH:mm.")
+        private final String start;
+        @ApiModelProperty(value = "The end of the slot, in the form yyyy-MM-dd HH:mm.")
+        private final String end;
+    }
+
+    @ToString
+    @Getter
+    @ApiModel(description = "The result of booking a single appointment of a batch.")
+    private static final class BatchResultPayload
+    {
+        private BatchResultPayload(final BookingResult result)
+        {
+            status = result.getStatus();
+            id = result.getAppointmentId();
+            message = result.getMessage();
+        }
+
+        @ApiModelProperty(value = "Whether the appointment was booked, conflicted or was invalid.")
+        private final BookingResult.Status status;
+        @ApiModelProperty(value = "The id of the booked appointment, if it was booked.")
+        private final Long id;
+        @ApiModelProperty(value = "Why the appointment was not booked, if it was not booked.")
+        private final String message;
     }
 
     // --------------------------------------------------------------------
     // :: Private Members
     private final AppointmentService service;
+    private final NdjsonExporter exporter;
+    private final AppointmentSubscriptions subscriptions;
 
     // --------------------------------------------------------------------
     // :: Private Interface
 
-    // A date formatter used to produce string representations for the date objects
-    // contained within this class. This formatter captures the date and time (
-    // to the minute only). This does not take into account timezones.
-    private static final SimpleDateFormat FORMATTER
-            = new SimpleDateFormat("yyyy-MM-dd hh:mm");
+    // The duration of the appointment to book, or the default one if the client did not supply any.
+    private static int durationOf(final CreateRequestPayload payload)
+    {
+        return payload.getDuration() == null ? Appointment.DEFAULT_DURATION : payload.getDuration();
+    }
+
+    // Parse a date supplied by the client, returning null if it is missing or invalid.
+    private static LocalDateTime parseDate(final String date)
+    {
+        if (date == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return AppointmentTime.parse(date);
+        }
+        catch (final FailedRequestException e)
+        {
+            return null;
+        }
+    }
+
+    // The number of appointments returned per page when the client does not ask for
+    // a specific number, and the largest page a client may ask for.
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // The defaults and limits of a search for free time slots. Slots are as long as
+    // an appointment by default, and at most as long as the longest appointment.
+    private static final int DEFAULT_SLOT_DURATION = Appointment.DEFAULT_DURATION;
+    private static final int MAX_SLOT_DURATION = Appointment.MAX_DURATION;
+    private static final int DEFAULT_SLOT_COUNT = 10;
+    private static final int MAX_SLOT_COUNT = 100;
+    private static final int DEFAULT_SEARCH_DAYS = 7;
+
+    // The largest number of appointments that can be booked in a single batch.
+    private static final int MAX_BATCH_SIZE = 10000;
 }
\ No newline at end of file
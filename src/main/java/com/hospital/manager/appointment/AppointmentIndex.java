@@ -0,0 +1,582 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * An in-memory index of the time slots that are booked for every doctor and every
+ * room. It allows the {@link AppointmentService} to detect booking conflicts with a
+ * couple of ordered set lookups (O(log n)) instead of loading and scanning the whole
+ * appointment table on every write.
+ * </p>
+ *
+ * <p>
+ * The minutes taken by each doctor and room are also kept in an
+ * {@link OccupancyBitmap}, which is used to search for free time without trying
+ * one booking after another.
+ * </p>
+ *
+ * <p>
+ * The index is loaded once at start-up and must be kept in sync by the
+ * {@link AppointmentService} whenever an appointment is booked, cancelled or moved.
+ * </p>
+ *
+ * <p>
+ * Changes made through other instances of this application are not seen by this
+ * index. A booking it misses is rejected by the overlap constraints of the
+ * database. A slot it still holds for an appointment that was cancelled or moved is
+ * found by {@link #refresh}, which compares the slots around a conflict with the
+ * database before the conflict is reported, unless the conflicting slot was read
+ * from or written to the database less than a fixed time ago.
+ * </p>
+ */
+@Slf4j
+@Component
+final class AppointmentIndex
+{
+    /**
+     * @param repository The repository the appointments are read from.
+     * @param timeToLive How long a slot read from or written to the database is
+     *                   trusted to cause a conflict without being read again.
+     */
+    AppointmentIndex(
+        final AppointmentRepository repository,
+        @Value("${hospital.index.time-to-live:1s}") final Duration timeToLive)
+    {
+        this.repository = repository;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * @param doctorId The id of the doctor to check.
+     * @param date The start of the time to check.
+     * @param duration The length of the time to check, in minutes.
+     * @param ignoredAppointmentId The id of an appointment whose slot and reservations
+     *                             should not count as a conflict (e.g. the
+     *                             appointment being moved), or 0L if every
+     *                             appointment counts.
+     * @return True if the doctor has no appointment that overlaps the given time.
+     */
+    boolean isDoctorAvailable(
+        final long doctorId,
+        final LocalDateTime date,
+        final int duration,
+        final long ignoredAppointmentId)
+    {
+        final long start = startOf(date);
+        return conflictOf(doctorSchedules.get(doctorId), start, start + duration, ignoredAppointmentId) == null;
+    }
+
+    /**
+     * @param room The room to check.
+     * @param date The start of the time to check.
+     * @param duration The length of the time to check, in minutes.
+     * @param ignoredAppointmentId The id of an appointment whose slot and reservations
+     *                             should not count as a conflict (e.g. the
+     *                             appointment being moved), or 0L if every
+     *                             appointment counts.
+     * @return True if the room has no appointment that overlaps the given time.
+     */
+    boolean isRoomAvailable(
+        final int room,
+        final LocalDateTime date,
+        final int duration,
+        final long ignoredAppointmentId)
+    {
+        final long start = startOf(date);
+        return conflictOf(roomSchedules.get(room), start, start + duration, ignoredAppointmentId) == null;
+    }
+
+    /**
+     * Check whether a conflict reported by {@link #isDoctorAvailable} or
+     * {@link #isRoomAvailable} can be reported without reading the database. This is
+     * the case when a conflicting slot is the reservation of a booking in progress, or
+     * was read from or written to the database less than the time to live ago.
+     * Otherwise the conflict may come from an appointment cancelled or moved through
+     * another instance of this application, and should be confirmed with
+     * {@link #refresh} first.
+     * @param doctorId The id of the doctor to check, or null for no doctor.
+     * @param room The room to check.
+     * @param date The start of the time to check.
+     * @param duration The length of the time to check, in minutes.
+     * @param ignoredAppointmentId The id of an appointment whose slot and reservations
+     *                             should not count as a conflict, or 0L if every
+     *                             appointment counts.
+     * @return True if a slot that overlaps the given time is known to be current.
+     */
+    boolean isConflictCurrent(
+        final Long doctorId,
+        final int room,
+        final LocalDateTime date,
+        final int duration,
+        final long ignoredAppointmentId)
+    {
+        final long start = startOf(date);
+        final long now = System.nanoTime();
+
+        return doctorId != null
+            && isCurrent(conflictOf(doctorSchedules.get(doctorId), start, start + duration, ignoredAppointmentId), now)
+            || isCurrent(conflictOf(roomSchedules.get(room), start, start + duration, ignoredAppointmentId), now);
+    }
+
+    /**
+     * Find the earliest time slots in which a doctor, a room or both are free. The
+     * slots returned do not overlap each other. They are only a snapshot: a slot can
+     * be booked by someone else before it is booked by the caller.
+     * @param doctorId The id of the doctor that must be free, or null for any doctor.
+     * @param room The room that must be free, or null for any room.
+     * @param from The earliest epoch minute a slot can start at.
+     * @param to The epoch minute by which a slot must have ended.
+     * @param length The length of each slot, in minutes. This must be positive.
+     * @param limit The maximum number of slots to return.
+     * @return The epoch minutes at which the free slots start, in ascending order.
+     *         This cannot be null.
+     */
+    List<Long> findFreeSlots(
+        final Long doctorId,
+        final Integer room,
+        final long from,
+        final long to,
+        final int length,
+        final int limit)
+    {
+        final List<OccupancyBitmap> occupancies = new ArrayList<>(2);
+        final Schedule doctorSchedule = doctorId != null ? doctorSchedules.get(doctorId) : null;
+        final Schedule roomSchedule = room != null ? roomSchedules.get(room) : null;
+        if (doctorSchedule != null)
+        {
+            occupancies.add(doctorSchedule.occupancy);
+        }
+        if (roomSchedule != null)
+        {
+            occupancies.add(roomSchedule.occupancy);
+        }
+
+        final List<Long> starts = new ArrayList<>();
+        long minute = from;
+
+        while (starts.size() < limit && minute + length <= to)
+        {
+            final long start = nextFree(occupancies, minute, to);
+            if (start + length > to)
+            {
+                break;
+            }
+
+            // Either the whole slot is free, or the search goes on from the minute
+            // that is taken within it.
+            final long taken = nextTaken(occupancies, start, start + length);
+            if (taken == start + length)
+            {
+                starts.add(start);
+                minute = start + length;
+            }
+            else
+            {
+                minute = taken;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * @param appointmentId The id of a persisted appointment.
+     * @return The doctor, room and time of the appointment as recorded in the index,
+     *         or null if it is not recorded. The index does not know the patient, so
+     *         the patient id of the summary is always null.
+     */
+    AppointmentSummary find(final long appointmentId)
+    {
+        final Slot slot = slotsById.get(appointmentId);
+
+        return slot == null ? null : new AppointmentSummary(slot.appointmentId, null, slot.doctorId, slot.room,
+            (int) slot.start, (int) (slot.end - slot.start));
+    }
+
+    /**
+     * Record the time slot taken by a persisted appointment, replacing the slot
+     * recorded for an older version of it. Nothing is changed if a newer version of
+     * the appointment has been recorded already.
+     * @param appointment The appointment to add. This cannot be null.
+     */
+    void add(final Appointment appointment)
+    {
+        record(Slot.of(appointment, appointment.getId()));
+    }
+
+    /**
+     * Release the time slot taken by the appointment with the given id, e.g. after
+     * it was deleted without being loaded.
+     * @param appointmentId The id of the appointment to remove.
+     */
+    void remove(final long appointmentId)
+    {
+        final Slot slot = slotsById.remove(appointmentId);
+
+        if (slot != null)
+        {
+            release(slot);
+        }
+    }
+
+    /**
+     * @return A new, unique, negative id that can be used with
+     *         {@link #add(Appointment, long)} to hold the time slot of an appointment
+     *         that has not been persisted yet.
+     */
+    long nextReservationId()
+    {
+        return reservationIds.decrementAndGet();
+    }
+
+    /**
+     * Reserve the time slot of an appointment under the given reservation id. The
+     * reservation belongs to the appointment if it has been persisted already (e.g.
+     * when it is being moved), so that it does not conflict with the appointment or
+     * its other reservations.
+     * @param appointment The appointment to add. This cannot be null.
+     * @param reservationId The id to record the slot under, from
+     *                      {@link #nextReservationId()}.
+     */
+    void add(final Appointment appointment, final long reservationId)
+    {
+        take(Slot.of(appointment, reservationId));
+    }
+
+    /**
+     * Release the time slot reserved under the given id.
+     * @param appointment The appointment the slot was reserved for. This cannot be null.
+     * @param reservationId The id the slot was reserved under.
+     */
+    void remove(final Appointment appointment, final long reservationId)
+    {
+        slotsById.remove(reservationId);
+        release(Slot.of(appointment, reservationId));
+    }
+
+    /**
+     * Replace the slots recorded for a doctor and a room around the given time with
+     * the appointments stored in the database, e.g. to drop the slot of an appointment
+     * that was cancelled or moved through another instance of this application. The
+     * appointments are read with a range scan of the (doctor_id, start_minute) and
+     * (room, start_minute) indexes. Reservations are kept.
+     * @param doctorId The id of the doctor to refresh, or null for no doctor.
+     * @param room The room to refresh.
+     * @param start The first epoch minute whose slots are refreshed.
+     * @param end The epoch minute after the last one whose slots are refreshed.
+     */
+    void refresh(final Long doctorId, final int room, final long start, final long end)
+    {
+        //only appointments starting less than the longest appointment earlier can overlap
+        final int from = Math.toIntExact(start - Appointment.MAX_DURATION);
+        final int to = Math.toIntExact(end);
+
+        if (doctorId != null)
+        {
+            refresh(doctorSchedules.get(doctorId), () -> repository.findDoctorSlots(doctorId, from, to), from, to);
+        }
+        refresh(roomSchedules.get(room), () -> repository.findRoomSlots(room, from, to), from, to);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Load the slots of every existing appointment. Only the columns needed by the
+    // index are selected so that the start-up cost stays small.
+    @PostConstruct
+    private void load()
+    {
+        final List<Object[]> rows = repository.findAppointmentSlots();
+
+        for (final Object[] row : rows)
+        {
+            take(slotOf(row));
+        }
+
+        log.info("Indexed {} existing appointment(s).", rows.size());
+    }
+
+    // Record the slots of the stored appointments of a schedule starting in
+    // [from, to), and release the slots of the appointments no longer stored there.
+    // Only the slots recorded before the rows are read can be released, since a slot
+    // recorded later may belong to an appointment committed after the read. A
+    // cancellation made through this instance while the rows were read may be
+    // recorded again, and is then released by the next refresh.
+    private void refresh(
+        final Schedule schedule,
+        final Supplier<List<Object[]>> storedSlots,
+        final long from,
+        final long to)
+    {
+        final List<Slot> recorded = schedule == null
+            ? List.of()
+            : new ArrayList<>(schedule.slots.subSet(Slot.startingAt(from), Slot.startingAt(to)));
+        final Set<Long> storedIds = new HashSet<>();
+
+        for (final Object[] row : storedSlots.get())
+        {
+            final Slot slot = slotOf(row);
+            storedIds.add(slot.id);
+            record(slot);
+        }
+
+        for (final Slot slot : recorded)
+        {
+            //reservations have negative ids and are not stored yet
+            if (slot.id > 0L && !storedIds.contains(slot.id) && slotsById.remove(slot.id, slot))
+            {
+                release(slot);
+            }
+        }
+    }
+
+    // Record the slot of a persisted appointment, replacing the slot of an older
+    // version of it, unless a newer version is recorded already.
+    private void record(final Slot slot)
+    {
+        slotsById.compute(slot.id, (id, current) -> {
+            if (current != null && current.version > slot.version)
+            {
+                return current;
+            }
+            if (current != null)
+            {
+                release(current);
+            }
+            index(slot);
+            return slot;
+        });
+    }
+
+    // The slot of a row of AppointmentRepository.findAppointmentSlots.
+    private static Slot slotOf(final Object[] row)
+    {
+        final long id = (Long) row[0];
+        final long start = (Integer) row[3];
+
+        return new Slot(id, id, (Long) row[4], (Long) row[1], (Integer) row[2], start, start + (Integer) row[5],
+            System.nanoTime());
+    }
+
+    // Record a slot under its id, its doctor and its room.
+    private void take(final Slot slot)
+    {
+        slotsById.put(slot.id, slot);
+        index(slot);
+    }
+
+    // Record a slot under its doctor and its room.
+    private void index(final Slot slot)
+    {
+        if (slot.doctorId != null)
+        {
+            doctorSchedules.computeIfAbsent(slot.doctorId, key -> new Schedule()).add(slot);
+        }
+        roomSchedules.computeIfAbsent(slot.room, key -> new Schedule()).add(slot);
+    }
+
+    // Remove a slot from the slots of its doctor and its room.
+    private void release(final Slot slot)
+    {
+        if (slot.doctorId != null)
+        {
+            final Schedule schedule = doctorSchedules.get(slot.doctorId);
+            if (schedule != null)
+            {
+                schedule.remove(slot);
+            }
+        }
+
+        final Schedule schedule = roomSchedules.get(slot.room);
+        if (schedule != null)
+        {
+            schedule.remove(slot);
+        }
+    }
+
+    // The first minute in [from, to) that is free in every one of the bitmaps, or to
+    // if there is none.
+    private static long nextFree(final List<OccupancyBitmap> occupancies, final long from, final long to)
+    {
+        long minute = from;
+        boolean isFreeInAll = false;
+
+        while (!isFreeInAll && minute < to)
+        {
+            isFreeInAll = true;
+            for (final OccupancyBitmap occupancy : occupancies)
+            {
+                final long free = occupancy.nextFree(minute, to);
+                if (free != minute)
+                {
+                    minute = free;
+                    isFreeInAll = false;
+                }
+            }
+        }
+        return minute;
+    }
+
+    // The first minute in [from, to) that is taken in any of the bitmaps, or to if
+    // there is none.
+    private static long nextTaken(final List<OccupancyBitmap> occupancies, final long from, final long to)
+    {
+        long minute = to;
+
+        for (final OccupancyBitmap occupancy : occupancies)
+        {
+            minute = occupancy.nextTaken(from, minute);
+        }
+        return minute;
+    }
+
+    // The slot that overlaps [start, end), or null if there is none. The slots of
+    // different appointments never overlap for the same doctor or room, so once the
+    // slots of the ignored appointment are skipped, the latest slot that starts
+    // before the end of the requested interval is the only one that can overlap it.
+    private static Slot conflictOf(
+        final Schedule schedule,
+        final long start,
+        final long end,
+        final long ignoredAppointmentId)
+    {
+        if (schedule == null)
+        {
+            return null;
+        }
+
+        for (final Slot slot : schedule.slots.headSet(Slot.startingAt(end), false).descendingSet())
+        {
+            if (slot.appointmentId != ignoredAppointmentId)
+            {
+                return slot.end <= start ? null : slot;
+            }
+        }
+        return null;
+    }
+
+    // Whether a conflicting slot is known to be current. Reservations have negative
+    // ids and belong to bookings in progress on this instance.
+    private boolean isCurrent(final Slot slot, final long now)
+    {
+        return slot != null && (slot.id < 0L || now - slot.recordedAt < timeToLiveNanos);
+    }
+
+    private static long startOf(final LocalDateTime date)
+    {
+        return AppointmentTime.toEpochMinute(date);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // The interval [start, end) taken by a single appointment or reservation,
+    // together with the doctor (if any) and room it is booked for. The slot is
+    // recorded under its id, which is either the id of the appointment or a
+    // reservation id, and belongs to the appointment with the given id. A
+    // reservation for a new appointment belongs to itself.
+    @RequiredArgsConstructor
+    private static final class Slot
+    {
+        // A slot that sorts before every slot starting at the given minute.
+        private static Slot startingAt(final long start)
+        {
+            return new Slot(Long.MIN_VALUE, 0L, 0L, null, 0, start, start, 0L);
+        }
+
+        private static Slot of(final Appointment appointment, final long id)
+        {
+            final long start = appointment.getStartMinute();
+            final long appointmentId = appointment.getId() != 0L ? appointment.getId() : id;
+            final Long doctorId = appointment.getDoctor() != null ? appointment.getDoctor().getId() : null;
+            return new Slot(id, appointmentId, appointment.getVersion(), doctorId, appointment.getRoom(), start,
+                appointment.getEndMinute(), System.nanoTime());
+        }
+
+        private final long id;
+        private final long appointmentId;
+        private final long version;
+        private final Long doctorId;
+        private final int room;
+        private final long start;
+        private final long end;
+        // When the slot was read from or written to the database, as System.nanoTime.
+        private final long recordedAt;
+    }
+
+    // The booked slots of a single doctor or room, ordered by start time, and the
+    // minutes they take. The slots can be read at any time, while the changes are
+    // serialized so that the bitmap always matches the slots.
+    private static final class Schedule
+    {
+        private synchronized void add(final Slot slot)
+        {
+            slots.add(slot);
+            occupancy.mark(slot.start, slot.end);
+        }
+
+        private synchronized void remove(final Slot slot)
+        {
+            if (slots.remove(slot))
+            {
+                occupancy.clear(slot.start, slot.end);
+
+                // The reservations made while an appointment is moved may overlap
+                // its slot, so mark the minutes they still take again.
+                final Slot first = Slot.startingAt(slot.start - Appointment.MAX_DURATION);
+                for (final Slot other : slots.subSet(first, Slot.startingAt(slot.end)))
+                {
+                    occupancy.mark(Math.max(other.start, slot.start), Math.min(other.end, slot.end));
+                }
+            }
+        }
+
+        private final NavigableSet<Slot> slots = new ConcurrentSkipListSet<>(SLOT_ORDER);
+        private final OccupancyBitmap occupancy = new OccupancyBitmap();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentRepository repository;
+    private final long timeToLiveNanos;
+
+    // The booked slot of each appointment and reservation, by slot id.
+    private final ConcurrentMap<Long, Slot> slotsById = new ConcurrentHashMap<>();
+
+    // The booked slots of each doctor and each room.
+    private final ConcurrentMap<Long, Schedule> doctorSchedules = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Schedule> roomSchedules = new ConcurrentHashMap<>();
+
+    // The source of the ids used to reserve slots for appointments not persisted yet.
+    private final AtomicLong reservationIds = new AtomicLong();
+
+    private static final Comparator<Slot> SLOT_ORDER = Comparator
+        .comparingLong((Slot slot) -> slot.start)
+        .thenComparingLong(slot -> slot.id);
+}
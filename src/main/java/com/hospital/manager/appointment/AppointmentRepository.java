@@ -3,12 +3,25 @@
 */
 package com.hospital.manager.appointment;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * This interface will allow access to the database.
@@ -18,6 +31,215 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT s FROM Appointment s WHERE s.id = ?1")
     Optional<Appointment> findAppointmentById(final long id);
 
+    /**
+     * Read the version of a appointment without loading it or its associations.
+     * @param id The id of the appointment.
+     * @return The version of the appointment, or empty if no appointment has the given id.
+     */
+    @Query("SELECT s.version FROM Appointment s WHERE s.id = ?1")
+    Optional<Long> findVersionById(final long id);
+
     @Query("SELECT s FROM Appointment s WHERE s.doctor.id = ?1")
     List<Appointment> findDoctorsAppointments(final long id);
+
+    /**
+     * Delete an appointment in a single statement, without loading it first.
+     * @param id The id of the appointment to delete.
+     * @return The number of appointments deleted, 0 if no appointment has the given id.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Appointment s WHERE s.id = ?1")
+    int deleteAppointmentById(final long id);
+
+    /**
+     * @return The id, doctor id, room, start minute, version and duration of every
+     *         appointment, in that order. This is used to build the
+     *         {@link AppointmentIndex} without loading the full appointment entities.
+     */
+    @Query("SELECT s.id, d.id, s.room, s.startMinute, s.version, s.duration FROM Appointment s LEFT JOIN s.doctor d")
+    List<Object[]> findAppointmentSlots();
+
+    /**
+     * @param doctorId The id of the doctor.
+     * @param from The earliest epoch minute an appointment may start at.
+     * @param to The epoch minute before which an appointment must start.
+     * @return The columns of {@link #findAppointmentSlots()} for the appointments of
+     *         the doctor starting in [from, to), read with a range scan of the
+     *         (doctor_id, start_minute) index. This is used to refresh the
+     *         {@link AppointmentIndex}.
+     */
+    @Query("SELECT s.id, s.doctor.id, s.room, s.startMinute, s.version, s.duration FROM Appointment s"
+        + " WHERE s.doctor.id = ?1 AND s.startMinute >= ?2 AND s.startMinute < ?3")
+    List<Object[]> findDoctorSlots(final long doctorId, final int from, final int to);
+
+    /**
+     * @param room The room.
+     * @param from The earliest epoch minute an appointment may start at.
+     * @param to The epoch minute before which an appointment must start.
+     * @return The columns of {@link #findAppointmentSlots()} for the appointments in
+     *         the room starting in [from, to), read with a range scan of the
+     *         (room, start_minute) index. This is used to refresh the
+     *         {@link AppointmentIndex}.
+     */
+    @Query("SELECT s.id, d.id, s.room, s.startMinute, s.version, s.duration FROM Appointment s LEFT JOIN s.doctor d"
+        + " WHERE s.room = ?1 AND s.startMinute >= ?2 AND s.startMinute < ?3")
+    List<Object[]> findRoomSlots(final int room, final int from, final int to);
+
+    /**
+     * @return The id, version, doctor id, patient ssn, patient first name, patient last
+     *         name, start minute, duration and room of every appointment with a doctor
+     *         and a patient, in that order. This is used to build the
+     *         {@link DoctorSchedules} without loading the full appointment entities.
+     */
+    @Query("SELECT s.id, s.version, d.id, p.id, p.firstName, p.lastName, s.startMinute, s.duration, s.room"
+        + " FROM Appointment s JOIN s.doctor d JOIN s.patient p")
+    List<Object[]> findScheduleEntries();
+
+    /**
+     * @param doctorId The id of the doctor.
+     * @param from The earliest epoch minute an appointment may start at.
+     * @param to The epoch minute before which an appointment must start.
+     * @return The columns of {@link #findScheduleEntries()} for the appointments of the
+     *         doctor with a patient starting in [from, to), read with a range scan of
+     *         the (doctor_id, start_minute) index. This is used to refresh a day of
+     *         the {@link DoctorSchedules}.
+     */
+    @Query("SELECT s.id, s.version, d.id, p.id, p.firstName, p.lastName, s.startMinute, s.duration, s.room"
+        + " FROM Appointment s JOIN s.doctor d JOIN s.patient p"
+        + " WHERE d.id = ?1 AND s.startMinute >= ?2 AND s.startMinute < ?3")
+    List<Object[]> findDoctorScheduleEntries(final long doctorId, final int from, final int to);
+
+    /**
+     * @return A stream of every appointment together with its patient and doctor,
+     *         read with a forward-only cursor in batches of 1000 rows. The rows
+     *         bypass the second-level cache. The stream must be consumed within a
+     *         transaction and closed afterwards.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT s FROM Appointment s LEFT JOIN FETCH s.patient p LEFT JOIN FETCH p.doctor"
+        + " LEFT JOIN FETCH s.doctor")
+    Stream<Appointment> streamAllAppointments();
+
+    /**
+     * @param ids The ids of the appointments to find.
+     * @return The columns returned to clients of the appointments with the given ids,
+     *         in no particular order, read in a single statement. Ids without an
+     *         appointment are left out. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.appointment.AppointmentSummary("
+        + "s.id, p.id, d.id, s.room, s.startMinute, s.duration)"
+        + " FROM Appointment s LEFT JOIN s.patient p LEFT JOIN s.doctor d"
+        + " WHERE s.id IN ?1")
+    List<AppointmentSummary> findAppointmentSummariesById(final Collection<Long> ids);
+
+    /**
+     * Find one page of appointments using keyset pagination. Appointments are ordered
+     * by start minute and then id, and the page starts after the appointment with the
+     * given start minute and id. Only the columns returned to clients are selected, in
+     * a single statement that does not load the patients or doctors. The index on
+     * (start_minute, id) holds the appointments in this order, so a page only reads
+     * its own rows.
+     * @param afterStart Only return appointments starting on or after this epoch minute.
+     * @param afterId Of the appointments starting at afterStart, only return the ones
+     *                with an id greater than this.
+     * @param to Only return appointments starting before this epoch minute.
+     * @param page The page holding the maximum number of appointments to return.
+     *             Its sort is ignored.
+     * @return The appointments ordered by start minute and id. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.appointment.AppointmentSummary("
+        + "s.id, s.patient.id, s.doctor.id, s.room, s.startMinute, s.duration) FROM Appointment s"
+        + " WHERE s.startMinute >= :afterStart AND s.startMinute < :to"
+        + " AND (s.startMinute > :afterStart OR s.id > :afterId)"
+        + " ORDER BY s.startMinute, s.id")
+    List<AppointmentSummary> findAppointmentPage(
+        @Param("afterStart") final int afterStart,
+        @Param("afterId") final long afterId,
+        @Param("to") final int to,
+        final Pageable page);
+
+    /**
+     * Find one page of the appointments of a doctor, like
+     * {@link #findAppointmentPage}. The index on (doctor_id, start_minute, id) holds
+     * the appointments of each doctor in page order.
+     * @param doctorId The doctor whose appointments are returned.
+     * @param afterStart Only return appointments starting on or after this epoch minute.
+     * @param afterId Of the appointments starting at afterStart, only return the ones
+     *                with an id greater than this.
+     * @param to Only return appointments starting before this epoch minute.
+     * @param page The page holding the maximum number of appointments to return.
+     *             Its sort is ignored.
+     * @return The appointments ordered by start minute and id. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.appointment.AppointmentSummary("
+        + "s.id, s.patient.id, s.doctor.id, s.room, s.startMinute, s.duration) FROM Appointment s"
+        + " WHERE s.doctor.id = :doctorId"
+        + " AND s.startMinute >= :afterStart AND s.startMinute < :to"
+        + " AND (s.startMinute > :afterStart OR s.id > :afterId)"
+        + " ORDER BY s.startMinute, s.id")
+    List<AppointmentSummary> findDoctorAppointmentPage(
+        @Param("doctorId") final long doctorId,
+        @Param("afterStart") final int afterStart,
+        @Param("afterId") final long afterId,
+        @Param("to") final int to,
+        final Pageable page);
+
+    /**
+     * Find one page of the appointments of a patient, optionally with one doctor,
+     * like {@link #findAppointmentPage}. The index on (patient_id, start_minute, id)
+     * holds the appointments of each patient in page order.
+     * @param patientId The patient whose appointments are returned.
+     * @param afterStart Only return appointments starting on or after this epoch minute.
+     * @param afterId Of the appointments starting at afterStart, only return the ones
+     *                with an id greater than this.
+     * @param to Only return appointments starting before this epoch minute.
+     * @param page The page holding the maximum number of appointments to return.
+     *             Its sort is ignored.
+     * @return The appointments ordered by start minute and id. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.appointment.AppointmentSummary("
+        + "s.id, s.patient.id, s.doctor.id, s.room, s.startMinute, s.duration) FROM Appointment s"
+        + " WHERE s.patient.id = :patientId"
+        + " AND s.startMinute >= :afterStart AND s.startMinute < :to"
+        + " AND (s.startMinute > :afterStart OR s.id > :afterId)"
+        + " ORDER BY s.startMinute, s.id")
+    List<AppointmentSummary> findPatientAppointmentPage(
+        @Param("patientId") final long patientId,
+        @Param("afterStart") final int afterStart,
+        @Param("afterId") final long afterId,
+        @Param("to") final int to,
+        final Pageable page);
+
+    /**
+     * Find one page of the appointments of a patient with one doctor, like
+     * {@link #findPatientAppointmentPage}. A patient has far fewer appointments than
+     * a doctor, so they are read through the (patient_id, start_minute, id) index.
+     * @param patientId The patient whose appointments are returned.
+     * @param doctorId The doctor the appointments are with.
+     * @param afterStart Only return appointments starting on or after this epoch minute.
+     * @param afterId Of the appointments starting at afterStart, only return the ones
+     *                with an id greater than this.
+     * @param to Only return appointments starting before this epoch minute.
+     * @param page The page holding the maximum number of appointments to return.
+     *             Its sort is ignored.
+     * @return The appointments ordered by start minute and id. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.appointment.AppointmentSummary("
+        + "s.id, s.patient.id, s.doctor.id, s.room, s.startMinute, s.duration) FROM Appointment s"
+        + " WHERE s.patient.id = :patientId AND s.doctor.id = :doctorId"
+        + " AND s.startMinute >= :afterStart AND s.startMinute < :to"
+        + " AND (s.startMinute > :afterStart OR s.id > :afterId)"
+        + " ORDER BY s.startMinute, s.id")
+    List<AppointmentSummary> findPatientDoctorAppointmentPage(
+        @Param("patientId") final long patientId,
+        @Param("doctorId") final long doctorId,
+        @Param("afterStart") final int afterStart,
+        @Param("afterId") final long afterId,
+        @Param("to") final int to,
+        final Pageable page);
 }
\ No newline at end of file
@@ -3,17 +3,33 @@
 */
 package com.hospital.manager.appointment;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.hospital.manager.doctor.Doctor;
 import com.hospital.manager.doctor.DoctorService;
+import com.hospital.manager.patient.Patient;
 import com.hospital.manager.patient.PatientService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import com.hospital.manager.cache.ModificationCounter;
 import com.hospital.manager.exception.CustomException.FailedRequestException;
 import com.hospital.manager.exception.CustomException.InvalidIdException;
+import com.hospital.manager.retry.OptimisticRetry;
 
 import lombok.RequiredArgsConstructor;
 
@@ -37,6 +53,130 @@ public final class AppointmentService
         return Collections.unmodifiableList(repository.findAll());
     }
 
+    /**
+     * Streams every appointment at this hospital without loading them all into memory.
+     *
+     * @return A stream of all {@link Appointment} objects. This must be consumed
+     *         within a transaction and closed afterwards. This cannot be null.
+     */
+    public Stream<Appointment> streamAppointments()
+    {
+        return repository.streamAllAppointments();
+    }
+
+    /**
+     * Retrieves one page of appointments at this hospital, optionally filtered by
+     * doctor, patient and date range. Pages are ordered by date and then id, so the
+     * next page is requested with the date and id of the last appointment of the
+     * current page.
+     *
+     * @param afterDate The date of the last appointment of the previous page, or null
+     *                  for the first page.
+     * @param afterId The id of the last appointment of the previous page. This is
+     *                ignored for the first page.
+     * @param doctorId The doctor whose appointments are returned, or null for all doctors.
+     * @param patientId The patient whose appointments are returned, or null for all patients.
+     * @param from The earliest (inclusive) appointment date, or null for no lower bound.
+     * @param to The latest (exclusive) appointment date, or null for no upper bound.
+     * @param limit The maximum number of appointments to return. This must be positive.
+     * @return An unmodifiable list of the summaries of at most limit {@link Appointment}
+     *         objects ordered by date and id, read in a single query. This cannot be null.
+     */
+    public List<AppointmentSummary> getAppointments(
+        final LocalDateTime afterDate,
+        final long afterId,
+        final Long doctorId,
+        final Long patientId,
+        final LocalDateTime from,
+        final LocalDateTime to,
+        final int limit)
+    {
+        //an open-ended range is bounded by the earliest or latest possible minute
+        int afterStart = from == null ? Integer.MIN_VALUE : AppointmentTime.toEpochMinute(from);
+        final int end = to == null ? Integer.MAX_VALUE : AppointmentTime.toEpochMinute(to);
+
+        //start after the previous page, unless that is before the range. ids are always positive
+        long afterAppointment = 0L;
+        if (afterDate != null && AppointmentTime.toEpochMinute(afterDate) >= afterStart) {
+            afterStart = AppointmentTime.toEpochMinute(afterDate);
+            afterAppointment = afterId;
+        }
+
+        //each combination of filters has its own query, so that it is served by its own index
+        final PageRequest page = PageRequest.of(0, limit);
+        final List<AppointmentSummary> appointments;
+        if (patientId != null && doctorId != null) {
+            appointments = repository.findPatientDoctorAppointmentPage(
+                patientId, doctorId, afterStart, afterAppointment, end, page);
+        }
+        else if (patientId != null) {
+            appointments = repository.findPatientAppointmentPage(patientId, afterStart, afterAppointment, end, page);
+        }
+        else if (doctorId != null) {
+            appointments = repository.findDoctorAppointmentPage(doctorId, afterStart, afterAppointment, end, page);
+        }
+        else {
+            appointments = repository.findAppointmentPage(afterStart, afterAppointment, end, page);
+        }
+        return Collections.unmodifiableList(appointments);
+    }
+
+    /**
+     * Retrieves the summaries of several appointments in a single query.
+     *
+     * @param ids The ids of the appointments.
+     * @return An unmodifiable list of the summaries of the appointments that exist,
+     *         in no particular order. This cannot be null.
+     */
+    public List<AppointmentSummary> getAppointmentSummaries(final Collection<Long> ids)
+    {
+        return Collections.unmodifiableList(repository.findAppointmentSummariesById(ids));
+    }
+
+    /**
+     * @return The version of the appointments, which changes whenever an appointment
+     *         is booked, cancelled or moved through any instance of this application.
+     *         It is read from memory, without querying the database.
+     */
+    public String getAppointmentsVersion()
+    {
+        return modifications.collectionVersion();
+    }
+
+    /**
+     * @param appointment An appointment.
+     * @return The version of the appointment as it was read, which changes whenever
+     *         the appointment is moved.
+     */
+    public String getAppointmentVersion(final Appointment appointment)
+    {
+        return getAppointmentVersion(appointment.getId(), appointment.getVersion());
+    }
+
+    /**
+     * @param id The id of an appointment.
+     * @param version The value of the version column of the appointment.
+     * @return The version of the appointment, as {@link #getAppointmentVersion(Appointment)}
+     *         returns it.
+     */
+    public String getAppointmentVersion(final long id, final long version)
+    {
+        return modifications.entityVersion(id, version);
+    }
+
+    /**
+     * Read the version column of an appointment without loading the appointment, so
+     * that a client that already has it can be answered without loading it either.
+     * @param id The id of the appointment.
+     * @return The value of the version column of the appointment.
+     * @throws InvalidIdException If no appointment has the given id.
+     */
+    public long readAppointmentVersion(final long id)
+    {
+        return repository.findVersionById(id).orElseThrow(() -> new InvalidIdException(
+                "Appointment with id  " + id + " not found."));
+    }
+
     /**
      * Get and return an appointment from the database.
      * @param id The id of the appointment.
@@ -48,32 +188,96 @@ public final class AppointmentService
     }
 
     /**
-     * Book a new appointment at the hospital.
+     * Retrieves the appointments of a doctor on one day, read from memory without
+     * querying the database.
+     * @param doctorId The id of the doctor.
+     * @param day The day to return the appointments of.
+     * @return The appointments of the doctor starting on the day, in start order.
+     */
+    public DoctorSchedule getDoctorSchedule(final long doctorId, final LocalDate day)
+    {
+        //make sure the doctor exists
+        doctorService.getDoctor(doctorId);
+
+        return schedules.getSchedule(doctorId, day);
+    }
+
+    /**
+     * Find the earliest times at which a doctor, a room or both are free, so that
+     * clients do not have to try one booking after another. The times are read from
+     * the in-memory occupancy of each doctor and room, without querying the database.
+     * @param doctorId The doctor that must be free, or null for any doctor.
+     * @param room The room that must be free, or null for any room.
+     * @param from The earliest time a slot can start at.
+     * @param to The time by which a slot must have ended.
+     * @param duration The length of each slot, in minutes.
+     * @param limit The maximum number of slots to return.
+     * @return An unmodifiable list of the start times of at most limit free slots that
+     *         do not overlap each other, in ascending order. This cannot be null.
+     */
+    public List<LocalDateTime> findAvailableSlots(
+        final Long doctorId,
+        final Integer room,
+        final LocalDateTime from,
+        final LocalDateTime to,
+        final int duration,
+        final int limit)
+    {
+        if (doctorId == null && room == null) {
+            throw new FailedRequestException("Please supply a doctor, a room or both to search for free time.");
+        }
+        if (!from.isBefore(to) || from.plusDays(MAX_SEARCH_DAYS).isBefore(to)) {
+            throw new FailedRequestException("The search must end after it starts and cover at most " +
+                    MAX_SEARCH_DAYS + " days. Please try again.");
+        }
+
+        //make sure the doctor exists
+        if (doctorId != null) {
+            doctorService.getDoctor(doctorId);
+        }
+
+        final List<LocalDateTime> slots = new ArrayList<>();
+        for (final long start : index.findFreeSlots(doctorId, room, AppointmentTime.toEpochMinute(from),
+                AppointmentTime.toEpochMinute(to), duration, limit)) {
+            slots.add(AppointmentTime.toDateTime(Math.toIntExact(start)));
+        }
+        return Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * Book a new appointment at the hospital. The conflict check and the reservation
+     * of the time slot happen under the locks of the doctor and room, so two
+     * concurrent bookings can never take the same slot, while bookings for other
+     * doctors and rooms go ahead in parallel.
      * @param patientSsn The patient who is booking the appointment.
      * @param doctorId The doctor who is being booked with.
      * @param date The date of the appointment.
      * @param room The room the appointment is in.
+     * @param duration The length of the appointment in minutes.
      */
     public HttpStatus book(
         final long patientSsn,
         final long doctorId,
-        final Date date,
-        final int room) {
-        //check to make sure the doctor doesnt have another appointment at the same time
-        final boolean isDoctorAvailable = doctorAvailability(doctorId, date);
-
-        //check to make sure the room will be available at the given date and time
-        final boolean isRoomAvailable = roomAvailability(date, room);
-
-        //if the doctor and room are available book the appointment
-        if (isDoctorAvailable && isRoomAvailable) {
-            Appointment appointment = new Appointment();
-            appointment.setPatient(patientService.getPatient(patientSsn));
-            appointment.setDoctor(doctorService.getDoctor(doctorId));
-            appointment.setDate(date);
-            appointment.setRoom(room);
+        final LocalDateTime date,
+        final int room,
+        final int duration) {
+        if (!isValidDuration(duration)) {
+            throw new FailedRequestException(invalidDurationMessage(duration));
+        }
+
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patientService.getPatient(patientSsn));
+        appointment.setDoctor(doctorService.getDoctor(doctorId));
+        appointment.setDate(date);
+        appointment.setRoom(room);
+        appointment.setDuration(duration);
 
-            repository.save(appointment);
+        //reserve the slot if the doctor and room are available, then save the appointment
+        final long reservation = reserve(appointment, NO_APPOINTMENT);
+        if (reservation != NO_RESERVATION) {
+            final Appointment saved = persist(appointment, reservation);
+            changed(new AppointmentChangedEvent(
+                AppointmentChangedEvent.Type.BOOKED, saved.getId(), null, summaryOf(saved)));
             return HttpStatus.OK;
         }
 
@@ -82,102 +286,332 @@ public final class AppointmentService
                 ". Please try another date or time.");
     }
 
+    /**
+     * Book many appointments at the hospital at once. All of the patients and doctors
+     * are loaded with one query each, conflicts are checked for the whole batch in a
+     * single pass (including conflicts between appointments of the same batch) and the
+     * appointments that can be booked are inserted together in JDBC batches. If the
+     * database rejects the batch because an appointment was booked at the same time by
+     * another request, the appointments are inserted one at a time instead and only the
+     * rejected ones are reported as conflicts.
+     * @param requests The appointments to book.
+     * @return The result of each request, in the same order as the requests.
+     */
+    public List<BookingResult> bookAll(final List<BookingRequest> requests) {
+        //load every patient and doctor referenced by the batch up front
+        final Set<Long> patientSsns = new HashSet<>();
+        final Set<Long> doctorIds = new HashSet<>();
+        for (BookingRequest request : requests) {
+            patientSsns.add(request.getPatientSsn());
+            doctorIds.add(request.getDoctorId());
+        }
+        final Map<Long, Patient> patients = patientService.getPatients(patientSsns).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity()));
+        final Map<Long, Doctor> doctors = doctorService.getDoctors(doctorIds).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+
+        //check every request, reserving the slots of the accepted ones so that later
+        //requests in the batch conflict with them
+        final BookingResult[] results = new BookingResult[requests.size()];
+        final List<Appointment> accepted = new ArrayList<>();
+        final List<Integer> acceptedPositions = new ArrayList<>();
+        final List<Long> reservations = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            final BookingRequest request = requests.get(i);
+            final Patient patient = patients.get(request.getPatientSsn());
+            final Doctor doctor = doctors.get(request.getDoctorId());
+
+            if (request.getDate() == null) {
+                results[i] = BookingResult.invalid("The appointment date is missing or not in the form yyyy-MM-dd HH:mm.");
+            }
+            else if (patient == null) {
+                results[i] = BookingResult.invalid("Patient with SSN " + request.getPatientSsn() + " not found.");
+            }
+            else if (doctor == null) {
+                results[i] = BookingResult.invalid("Doctor with id " + request.getDoctorId() + " not found.");
+            }
+            else if (!isValidDuration(request.getDuration())) {
+                results[i] = BookingResult.invalid(invalidDurationMessage(request.getDuration()));
+            }
+            else {
+                final Appointment appointment = new Appointment();
+                appointment.setPatient(patient);
+                appointment.setDoctor(doctor);
+                appointment.setDate(request.getDate());
+                appointment.setRoom(request.getRoom());
+                appointment.setDuration(request.getDuration());
+
+                final long reservation = reserve(appointment, NO_APPOINTMENT);
+                if (reservation == NO_RESERVATION) {
+                    results[i] = BookingResult.conflict("Either the doctor or room requested at " + request.getDate() +
+                            " is not available.");
+                    continue;
+                }
+
+                accepted.add(appointment);
+                acceptedPositions.add(i);
+                reservations.add(reservation);
+            }
+        }
+
+        //insert the accepted appointments together, releasing the reservations if that fails. If one of them
+        //conflicts with an appointment booked since the checks above (e.g. through another instance), they are
+        //inserted one at a time below so that only the conflicting ones are rejected
+        boolean isBatchSaved = true;
+        try {
+            repository.saveAll(accepted);
+        }
+        catch (DataIntegrityViolationException e) {
+            isBatchSaved = false;
+        }
+        catch (RuntimeException e) {
+            for (int i = 0; i < accepted.size(); i++) {
+                index.remove(accepted.get(i), reservations.get(i));
+            }
+            throw translate(e);
+        }
+
+        //swap each reservation for the persisted appointment. The appointments are counted as one change once
+        //they are all committed, even if a later insert fails, and the listeners are told about them after that
+        final List<AppointmentChangedEvent> booked = new ArrayList<>(accepted.size());
+        try {
+            for (int i = 0; i < accepted.size(); i++) {
+                Appointment appointment = accepted.get(i);
+
+                if (!isBatchSaved) {
+                    try {
+                        //the appointments of the rolled back batch were given ids, so insert a new copy
+                        appointment = repository.save(copyOf(appointment));
+                    }
+                    catch (DataIntegrityViolationException e) {
+                        index.remove(appointment, reservations.get(i));
+                        refresh(appointment);
+                        results[acceptedPositions.get(i)] = BookingResult.conflict("Either the doctor or room requested at "
+                                + appointment.getDate() + " was booked at the same time by another request.");
+                        continue;
+                    }
+                    catch (RuntimeException e) {
+                        //release the reservations of the appointments not inserted yet
+                        for (int j = i; j < accepted.size(); j++) {
+                            index.remove(accepted.get(j), reservations.get(j));
+                        }
+                        throw translate(e);
+                    }
+                }
+
+                index.add(appointment);
+                index.remove(appointment, reservations.get(i));
+                schedules.add(appointment);
+                results[acceptedPositions.get(i)] = BookingResult.booked(appointment.getId());
+                booked.add(new AppointmentChangedEvent(
+                    AppointmentChangedEvent.Type.BOOKED, appointment.getId(), null, summaryOf(appointment)));
+            }
+        }
+        finally {
+            if (!booked.isEmpty()) {
+                modifications.changed();
+                booked.forEach(events::publishEvent);
+            }
+        }
+
+        return List.of(results);
+    }
+
     /**
      * Cancel an appointment.
      * @param appId The id of the appointment to cancel.
      */
     public HttpStatus cancel(final long appId){
-        //check to make sure the appointment exists, will throw an exception if it doesnt
-        find(appId);
-        //delete the appointment from the database
-        repository.deleteById(appId);
+        //remember where the appointment was, the delete does not load it
+        final AppointmentSummary previous = index.find(appId);
 
-        try {
-            //try to find the appointment, it should not be there
-            repository.findAppointmentById(appId);
+        //delete the appointment in a single statement, the number of rows deleted tells us if it existed
+        if (repository.deleteAppointmentById(appId) == 0){
+            throw new InvalidIdException("Appointment with id  " + appId + " not found.");
         }
-        //catch the exception that should be thrown
-        catch (InvalidIdException e){
-            //return OK since the appointment is not in the database
-            return HttpStatus.OK;
-        }
-        //throw an exception if the appointment is still there
-        throw new FailedRequestException("The appointment could not be deleted. Please make sure all" +
-                " information is correct and try again.");
+        //release its time slot
+        index.remove(appId);
+        schedules.remove(appId);
+        changed(new AppointmentChangedEvent(
+            AppointmentChangedEvent.Type.CANCELLED, appId, previous, null));
+        return HttpStatus.OK;
     }
 
     /**
-     * Change the date of an appointment.
+     * Change the date of an appointment. If another request changes the appointment
+     * at the same time, the change is made again on the latest version of it.
      * @param appId The id of the appointment.
      * @param date The new date of the appointment.
      */
-    public void changeDate(final long appId, final Date date){
-        //make sure the appointment exists
-        final Appointment appointment = find(appId);
-
-        //make sure no conflict, assume same appointment time
-        final boolean isDoctorAvailable = doctorAvailability(appId,date);
-
-        //make sure the room is still available on the new date
-        final boolean isRoomAvailable = roomAvailability(date, appointment.getRoom());
-
-        //if the doctor and room are available, set the new appointment date
-        if (isDoctorAvailable && isRoomAvailable) {
+    public void changeDate(final long appId, final LocalDateTime date){
+        final AppointmentChangedEvent event = retry.execute("appointment.changeDate", () -> {
+            //make sure the appointment exists
+            final Appointment appointment = find(appId);
+            final AppointmentSummary previous = summaryOf(appointment);
             appointment.setDate(date);
-            return;
-        }
-        //throw an exception if the doctor or room is not available
-        throw new FailedRequestException("Either the doctor or room requested at " + date +
-                ". Please try another date or time.");
+
+            //reserve the new slot if the doctor and room are available, ignoring the appointment being moved
+            final long reservation = reserve(appointment, appId);
+            if (reservation != NO_RESERVATION) {
+                return rescheduled(previous, persist(appointment, reservation));
+            }
+            //throw an exception if the doctor or room is not available
+            throw new FailedRequestException("Either the doctor or room requested at " + date +
+                    ". Please try another date or time.");
+        });
+        changed(event);
     }
 
     /**
-     * Change the room an appointment is in.
+     * Change the room an appointment is in. If another request changes the
+     * appointment at the same time, the change is made again on the latest version
+     * of it.
      * @param appId The id of the appointment
      * @param room The new room for the appointment
      */
     public void changeRoom(final long appId, final int room){
-        //make sure the appointment exists
-        Appointment appointment = find(appId);
-
-        //make sure no conflict
-        final boolean isRoomAvailable = roomAvailability(appointment.getDate(), room);
-
-        //if the room is available change it
-        if (isRoomAvailable) {
+        final AppointmentChangedEvent event = retry.execute("appointment.changeRoom", () -> {
+            //make sure the appointment exists
+            Appointment appointment = find(appId);
+            final AppointmentSummary previous = summaryOf(appointment);
             appointment.setRoom(room);
-            return;
-        }
-        throw new FailedRequestException("Room " + room + " is not available at " + appointment.getDate() +
-                " please try to book another room or change your appointment date.");
+
+            //reserve the new room if it is available, ignoring the appointment being moved
+            final long reservation = reserve(appointment, appId);
+            if (reservation != NO_RESERVATION) {
+                return rescheduled(previous, persist(appointment, reservation));
+            }
+            throw new FailedRequestException("Room " + room + " is not available at " + appointment.getDate() +
+                    " please try to book another room or change your appointment date.");
+        });
+        changed(event);
     }
 
     // --------------------------------------------------------------------
     // :: Private Interface
 
-    private boolean roomAvailability(final Date date,final int room){
-        //get a list of all the appointments
-        final List<Appointment> appointments =  getAppointments();
+    //helper method to make sure a room is free for the whole of an appointment
+    private boolean roomAvailability(final Appointment appointment, final long ignoredAppId){
+        //look up the rooms booked slots, ignoring the given appointment
+        return index.isRoomAvailable(appointment.getRoom(), appointment.getDate(), appointment.getDuration(),
+            ignoredAppId);
+    }
+
+    //helper method to make sure a doctor is free for the whole of an appointment
+    private boolean doctorAvailability(final Appointment appointment, final long ignoredAppId){
+        //look up the doctors booked slots, ignoring the given appointment
+        return index.isDoctorAvailable(appointment.getDoctor().getId(), appointment.getDate(),
+            appointment.getDuration(), ignoredAppId);
+    }
+
+    //helper method to make sure both the doctor and the room of an appointment are free
+    private boolean isAvailable(final Appointment appointment, final long ignoredAppId){
+        return (appointment.getDoctor() == null || doctorAvailability(appointment, ignoredAppId))
+            && roomAvailability(appointment, ignoredAppId);
+    }
 
-        for (Appointment appointment:appointments) {
-            if (!(appointment.getDate().equals(date) && appointment.getRoom() == room)){
-                return false;
+    //replace the slots the index holds around an appointment with the ones stored in the database
+    private void refresh(final Appointment appointment){
+        index.refresh(appointment.getDoctor() != null ? appointment.getDoctor().getId() : null,
+            appointment.getRoom(), appointment.getStartMinute(), appointment.getEndMinute());
+    }
+
+    private static boolean isValidDuration(final int duration){
+        return duration >= 1 && duration <= Appointment.MAX_DURATION;
+    }
+
+    private static String invalidDurationMessage(final int duration){
+        return "The duration " + duration + " is not valid. An appointment must last between 1 and " +
+                Appointment.MAX_DURATION + " minutes.";
+    }
+
+    //reserve the slot of an appointment in the index if its doctor and room are available. The check and the
+    //reservation happen under the locks of the doctor and room, so no other booking can take the slot in between.
+    //a conflict found in the index is confirmed against the database first unless it is known to be current, since
+    //the index does not see the appointments cancelled or moved through other instances of this application.
+    //returns the reservation id, or NO_RESERVATION if the slot is not available
+    private long reserve(final Appointment appointment, final long ignoredAppId){
+        return locks.withLocks(appointment, () -> {
+            if (!isAvailable(appointment, ignoredAppId)) {
+                if (index.isConflictCurrent(appointment.getDoctor() != null ? appointment.getDoctor().getId() : null,
+                        appointment.getRoom(), appointment.getDate(), appointment.getDuration(), ignoredAppId)) {
+                    return NO_RESERVATION;
+                }
+                refresh(appointment);
+                if (!isAvailable(appointment, ignoredAppId)) {
+                    return NO_RESERVATION;
+                }
             }
+
+            final long reservation = index.nextReservationId();
+            index.add(appointment, reservation);
+            return reservation;
+        });
+    }
+
+    //save an appointment whose slot is reserved and swap the reservation for the saved appointment in the index,
+    //replacing the slot of its previous version if it was moved. The reservation is released if the save fails
+    private Appointment persist(final Appointment appointment, final long reservation){
+        final Appointment saved;
+        try {
+            saved = repository.save(appointment);
+        }
+        catch (RuntimeException e) {
+            index.remove(appointment, reservation);
+            if (e instanceof DataIntegrityViolationException) {
+                //the slot was booked through another instance, so let the index catch up with it
+                refresh(appointment);
+            }
+            throw translate(e);
         }
-        return true;
+
+        index.add(saved);
+        index.remove(saved, reservation);
+        schedules.add(saved);
+        return saved;
     }
 
-    //helper method to make sure a doctor is available at a certain date and time
-    private boolean doctorAvailability(final long doctorEmpId, final Date date){
-        //get a list of all an individual doctors appointments
-        final List<Appointment> doctorAppointments = repository.findDoctorsAppointments(doctorEmpId);
+    //count a committed change to an appointment and tell the listeners about it
+    private void changed(final AppointmentChangedEvent event){
+        modifications.changed();
+        events.publishEvent(event);
+    }
 
-        for (Appointment appointment:doctorAppointments) {
-            if (!(appointment.getDate().equals(date))){
-                return false;
-            }
+    //the columns of an appointment published with a change
+    private static AppointmentSummary summaryOf(final Appointment appointment){
+        return new AppointmentSummary(
+                appointment.getId(),
+                appointment.getPatient() != null ? appointment.getPatient().getId() : null,
+                appointment.getDoctor() != null ? appointment.getDoctor().getId() : null,
+                appointment.getRoom(),
+                appointment.getStartMinute(),
+                appointment.getDuration());
+    }
+
+    //a new appointment at the same time and place as the given one
+    private static Appointment copyOf(final Appointment appointment){
+        final Appointment copy = new Appointment();
+        copy.setPatient(appointment.getPatient());
+        copy.setDoctor(appointment.getDoctor());
+        copy.setDate(appointment.getDate());
+        copy.setRoom(appointment.getRoom());
+        copy.setDuration(appointment.getDuration());
+        return copy;
+    }
+
+    private static AppointmentChangedEvent rescheduled(final AppointmentSummary previous, final Appointment saved){
+        return new AppointmentChangedEvent(AppointmentChangedEvent.Type.RESCHEDULED, saved.getId(), previous,
+                summaryOf(saved));
+    }
+
+    //the overlap checks of the database reject a slot booked by another instance of this application
+    private static RuntimeException translate(final RuntimeException e){
+        if (e instanceof DataIntegrityViolationException) {
+            return new FailedRequestException("The doctor or room was booked at the same time by another request." +
+                    " Please try another date or time.");
         }
-        return true;
+        return e;
     }
 
     //a helper method to find an appointment in the repository
@@ -193,4 +627,19 @@ public final class AppointmentService
     private final AppointmentRepository repository;
     private final DoctorService doctorService;
     private final PatientService patientService;
+    private final AppointmentIndex index;
+    private final BookingLocks locks;
+    private final DoctorSchedules schedules;
+    private final OptimisticRetry retry;
+    private final ApplicationEventPublisher events;
+    private final ModificationCounter<Appointment> modifications;
+
+    //the id used when no existing appointment should be ignored by a conflict check
+    private static final long NO_APPOINTMENT = 0L;
+
+    //returned by reserve when the slot is not available. reservation ids are always negative
+    private static final long NO_RESERVATION = 0L;
+
+    //the longest period that can be searched for free time at once
+    private static final int MAX_SEARCH_DAYS = 31;
 }
\ No newline at end of file
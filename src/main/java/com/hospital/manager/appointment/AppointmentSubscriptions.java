@@ -0,0 +1,316 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Pushes the appointment changes published by the {@link AppointmentService} to the
+ * clients subscribed to them as Server-Sent Events, so that displays do not have to
+ * poll for changes. A client can subscribe to the changes of a doctor, of a room, or
+ * of both.
+ * </p>
+ *
+ * <p>
+ * Each subscriber has a buffer of hospital.events.buffer-size changes, which is
+ * emptied by a small pool of sender threads, so a change never waits on a client. A
+ * client too slow to keep up is sent a resync event and disconnected once its buffer
+ * is full; it should then load its data again and subscribe again. A heartbeat
+ * comment is sent every hospital.events.heartbeat-interval to detect clients that
+ * went away.
+ * </p>
+ */
+@Slf4j
+@Component
+public final class AppointmentSubscriptions
+{
+    /**
+     * @param bufferSize The number of changes buffered for each subscriber.
+     * @param senders The number of threads sending the changes to the subscribers.
+     * @param timeout How long a subscription lasts before the client has to subscribe
+     *                again.
+     * @param heartbeatInterval How often subscribers are sent a heartbeat.
+     */
+    public AppointmentSubscriptions(
+        @Value("${hospital.events.buffer-size:256}") final int bufferSize,
+        @Value("${hospital.events.senders:4}") final int senders,
+        @Value("${hospital.events.timeout:30m}") final Duration timeout,
+        @Value("${hospital.events.heartbeat-interval:30s}") final Duration heartbeatInterval)
+    {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.heartbeatInterval = heartbeatInterval;
+        this.sender = Executors.newFixedThreadPool(senders, daemon("appointment-events-"));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Subscribe to the appointment changes of a doctor, a room, or both.
+     * @param doctorId Only changes to the appointments of this doctor are sent, if not
+     *                 null.
+     * @param room Only changes to the appointments in this room are sent, if not null.
+     * @return The emitter sending the changes to the client. This cannot be null.
+     */
+    public SseEmitter subscribe(final Long doctorId, final Integer room)
+    {
+        final Subscriber subscriber = new Subscriber(doctorId, room, new SseEmitter(timeout.toMillis()), bufferSize);
+
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+
+        log.info("Subscribed to the appointment changes of doctor={} room={}, {} subscriber(s).", doctorId, room,
+            subscribers.size());
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Buffer a change for every subscriber it concerns.
+     * @param event The change.
+     */
+    @EventListener
+    public void onAppointmentChanged(final AppointmentChangedEvent event)
+    {
+        final ChangePayload change = new ChangePayload(ids.incrementAndGet(), event);
+
+        for (final Subscriber subscriber : subscribers)
+        {
+            if (event.concerns(subscriber.doctorId, subscriber.room))
+            {
+                offer(subscriber, change);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    @PostConstruct
+    private void start()
+    {
+        heartbeat.scheduleWithFixedDelay(() -> {
+            for (final Subscriber subscriber : subscribers)
+            {
+                offer(subscriber, HEARTBEAT);
+            }
+        }, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop()
+    {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+
+        for (final Subscriber subscriber : subscribers)
+        {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Buffer a message for a subscriber and make sure a sender will send it. A full
+    // buffer marks the subscriber as overflowed, which disconnects it.
+    private void offer(final Subscriber subscriber, final Object message)
+    {
+        if (!subscriber.queue.offer(message))
+        {
+            subscriber.overflowed = true;
+        }
+        schedule(subscriber);
+    }
+
+    // Let a sender empty the buffer of a subscriber, unless one is already doing so.
+    private void schedule(final Subscriber subscriber)
+    {
+        if (!subscriber.closed && subscriber.sending.compareAndSet(false, true))
+        {
+            sender.execute(() -> send(subscriber));
+        }
+    }
+
+    // Send the buffered messages of a subscriber, on a sender thread.
+    private void send(final Subscriber subscriber)
+    {
+        try
+        {
+            Object message;
+            while (!subscriber.overflowed && (message = subscriber.queue.poll()) != null)
+            {
+                if (message == HEARTBEAT)
+                {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                else
+                {
+                    final ChangePayload change = (ChangePayload) message;
+                    subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(change.id))
+                        .name(change.type.name().toLowerCase())
+                        .data(change));
+                }
+            }
+
+            if (subscriber.overflowed)
+            {
+                log.warn("Disconnecting a subscriber of doctor={} room={} that fell {} change(s) behind.",
+                    subscriber.doctorId, subscriber.room, bufferSize);
+
+                subscriber.queue.clear();
+                subscriber.emitter.send(SseEmitter.event().name("resync").data("Too many changes were missed."
+                    + " Please load the appointments again and subscribe again."));
+                subscriber.emitter.complete();
+                unsubscribe(subscriber);
+            }
+        }
+        //the client went away
+        catch (final IOException | IllegalStateException e)
+        {
+            subscriber.emitter.completeWithError(e);
+            unsubscribe(subscriber);
+        }
+        finally
+        {
+            subscriber.sending.set(false);
+        }
+
+        //a message may have been buffered after the buffer was found empty
+        if (!subscriber.queue.isEmpty())
+        {
+            schedule(subscriber);
+        }
+    }
+
+    private void unsubscribe(final Subscriber subscriber)
+    {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private static ThreadFactory daemon(final String name)
+    {
+        final AtomicInteger threads = new AtomicInteger();
+
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // A client subscribed to the changes of a doctor, a room, or both, and the
+    // changes buffered for it.
+    private static final class Subscriber
+    {
+        private Subscriber(final Long doctorId, final Integer room, final SseEmitter emitter, final int bufferSize)
+        {
+            this.doctorId = doctorId;
+            this.room = room;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private final Long doctorId;
+        private final Integer room;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue;
+
+        // Set while a sender is emptying the queue.
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+    }
+
+    // A change as sent to the subscribers.
+    @Getter
+    @ToString
+    private static final class ChangePayload
+    {
+        private ChangePayload(final long id, final AppointmentChangedEvent event)
+        {
+            this.id = id;
+            this.type = event.getType();
+            this.appointmentId = event.getAppointmentId();
+            this.previous = event.getPrevious() == null ? null : new AppointmentPayload(event.getPrevious());
+            this.current = event.getCurrent() == null ? null : new AppointmentPayload(event.getCurrent());
+        }
+
+        private final long id;
+        private final AppointmentChangedEvent.Type type;
+        private final long appointmentId;
+        private final AppointmentPayload previous;
+        private final AppointmentPayload current;
+    }
+
+    @Getter
+    @ToString
+    private static final class AppointmentPayload
+    {
+        private AppointmentPayload(final AppointmentSummary appointment)
+        {
+            patientId = appointment.getPatientId();
+            doctorId = appointment.getDoctorId();
+            room = appointment.getRoom();
+            date = appointment.getFormattedDate();
+            duration = appointment.getDuration();
+        }
+
+        private final Long patientId;
+        private final Long doctorId;
+        private final int room;
+        private final String date;
+        private final int duration;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Duration heartbeatInterval;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // The id of the last change sent.
+    private final AtomicLong ids = new AtomicLong();
+
+    private final ExecutorService sender;
+    private final ScheduledExecutorService heartbeat =
+        Executors.newSingleThreadScheduledExecutor(daemon("appointment-events-heartbeat-"));
+
+    // Buffered to send a heartbeat comment.
+    private static final Object HEARTBEAT = new Object();
+}
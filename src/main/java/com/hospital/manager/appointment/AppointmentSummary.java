@@ -0,0 +1,57 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The columns of an {@link Appointment} returned to clients, read by a projection
+ * query without loading the appointment, its patient or its doctor.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class AppointmentSummary
+{
+    /**
+     * @return The date and time of the appointment in the {@value AppointmentTime#PATTERN}
+     *         form. This cannot be null.
+     */
+    public String getFormattedDate()
+    {
+        return AppointmentTime.format(startMinute);
+    }
+
+    /**
+     * The unique database identifier of the appointment.
+     */
+    private final long id;
+
+    /**
+     * The ssn of the patient, or null if the appointment has no patient.
+     */
+    private final Long patientId;
+
+    /**
+     * The id of the doctor, or null if the appointment has no doctor.
+     */
+    private final Long doctorId;
+
+    /**
+     * The room the appointment is in.
+     */
+    private final int room;
+
+    /**
+     * The start of the appointment as the number of minutes since 1970-01-01 00:00.
+     */
+    private final int startMinute;
+
+    /**
+     * The length of the appointment in minutes.
+     */
+    private final int duration;
+}
@@ -0,0 +1,137 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+/**
+ * <p>
+ * Converts appointment times between the text supplied by and returned to clients,
+ * {@link LocalDateTime} objects and the compact form stored in the database: the
+ * number of minutes since 1970-01-01 00:00. Like the rest of the hospital management
+ * system this does not take timezones into account, every time is a local time at
+ * the hospital.
+ * </p>
+ *
+ * <p>
+ * Only the times from {@link #EARLIEST} to {@link #LATEST} are supported, whose
+ * minutes, and the ends of appointments and searches starting at them, fit in an int.
+ * </p>
+ *
+ * <p>
+ * The formatter used is immutable and can be shared by any number of threads.
+ * </p>
+ */
+public final class AppointmentTime
+{
+    /**
+     * The pattern clients use to supply and receive appointment times.
+     */
+    public static final String PATTERN = "yyyy-MM-dd HH:mm";
+
+    /**
+     * The earliest time supported.
+     */
+    public static final LocalDateTime EARLIEST = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    /**
+     * The latest time supported. The minutes of the following half century still fit
+     * in an int, which leaves room for the end of any appointment or search.
+     */
+    public static final LocalDateTime LATEST = LocalDateTime.of(5999, 12, 31, 23, 59);
+
+    /**
+     * Parse the text supplied by a client.
+     * @param text The date and time in the {@value #PATTERN} form. This cannot be null.
+     * @return The parsed date and time. This cannot be null.
+     * @throws FailedRequestException If the text is not a valid date and time in the
+     *                                {@value #PATTERN} form, or is not supported.
+     */
+    public static LocalDateTime parse(final String text)
+    {
+        final LocalDateTime dateTime;
+        try
+        {
+            dateTime = LocalDateTime.parse(text, FORMATTER);
+        }
+        catch (final DateTimeParseException e)
+        {
+            throw new FailedRequestException("The date " + text + " is not valid. Please enter it in the form "
+                + PATTERN + " and try again.");
+        }
+        return checkSupported(dateTime);
+    }
+
+    /**
+     * Check a date and time supplied by a client, in whatever form, before its minute
+     * is computed.
+     * @param dateTime The date and time to check. This cannot be null.
+     * @return The date and time. This cannot be null.
+     * @throws FailedRequestException If the date and time is before {@link #EARLIEST} or
+     *                                after {@link #LATEST}.
+     */
+    public static LocalDateTime checkSupported(final LocalDateTime dateTime)
+    {
+        if (dateTime.isBefore(EARLIEST) || dateTime.isAfter(LATEST))
+        {
+            throw new FailedRequestException("The date " + FORMATTER.format(dateTime) + " is not supported."
+                + " Please enter a date between " + FORMATTER.format(EARLIEST) + " and "
+                + FORMATTER.format(LATEST) + " and try again.");
+        }
+        return dateTime;
+    }
+
+    /**
+     * @param epochMinute The number of minutes since 1970-01-01 00:00.
+     * @return The date and time in the {@value #PATTERN} form. This cannot be null.
+     */
+    public static String format(final int epochMinute)
+    {
+        return FORMATTER.format(toDateTime(epochMinute));
+    }
+
+    /**
+     * @param dateTime The date and time to convert. This cannot be null. Seconds and
+     *                 smaller units are dropped.
+     * @return The number of minutes since 1970-01-01 00:00.
+     */
+    public static int toEpochMinute(final LocalDateTime dateTime)
+    {
+        return Math.toIntExact(Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_MINUTE));
+    }
+
+    /**
+     * @param epochMinute The number of minutes since 1970-01-01 00:00.
+     * @return The corresponding date and time. This cannot be null.
+     */
+    public static LocalDateTime toDateTime(final int epochMinute)
+    {
+        return LocalDateTime.ofEpochSecond(epochMinute * SECONDS_PER_MINUTE, 0, ZoneOffset.UTC);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private AppointmentTime()
+    {
+        // This class only has static methods.
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    // Captures the date and time to the minute, on a 24 hour clock. Strict resolving
+    // rejects dates that do not exist (e.g. 2021-02-30) instead of rolling them over.
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+        .ofPattern("uuuu-MM-dd HH:mm")
+        .withResolverStyle(ResolverStyle.STRICT);
+
+    private static final long SECONDS_PER_MINUTE = 60L;
+}
@@ -0,0 +1,125 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * Serializes the bookings that could conflict with each other, while letting every
+ * other booking run in parallel. A booking holds a lock for its doctor and one for
+ * its room, for each period of {@value #PERIOD_MINUTES} minutes its time slot
+ * touches. Two bookings that overlap for the same doctor or room always share at
+ * least one of those locks.
+ * </p>
+ *
+ * <p>
+ * The locks are taken from a fixed array of {@value #STRIPES} stripes, so memory
+ * use does not grow with the number of doctors, rooms or dates. Unrelated bookings
+ * that hash to the same stripe are serialized needlessly but remain correct. Locks
+ * are always acquired in stripe order, so bookings cannot deadlock.
+ * </p>
+ *
+ * <p>
+ * The locks only cover this instance of the application. The unique constraints on
+ * the appointment table are the final guard against bookings made by other
+ * instances.
+ * </p>
+ */
+@Component
+final class BookingLocks
+{
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * Run an action while holding the locks of the doctor and room of an
+     * appointment, for its whole time slot.
+     * @param appointment The appointment whose doctor, room and time slot are locked.
+     *                    This cannot be null.
+     * @param action The action to run. This cannot be null.
+     * @param <T> The type of the result of the action.
+     * @return The result of the action.
+     */
+    <T> T withLocks(final Appointment appointment, final Supplier<T> action)
+    {
+        final int[] stripes = stripesOf(appointment);
+
+        int locked = 0;
+        try
+        {
+            for (; locked < stripes.length; locked++)
+            {
+                locks[stripes[locked]].lock();
+            }
+            return action.get();
+        }
+        finally
+        {
+            while (locked > 0)
+            {
+                locks[stripes[--locked]].unlock();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // The distinct stripes guarding the doctor and room of an appointment, in
+    // ascending order.
+    private static int[] stripesOf(final Appointment appointment)
+    {
+        final long start = appointment.getStartMinute();
+        final long firstPeriod = Math.floorDiv(start, PERIOD_MINUTES);
+        final long lastPeriod = Math.floorDiv(appointment.getEndMinute() - 1L, PERIOD_MINUTES);
+
+        final IntStream.Builder stripes = IntStream.builder();
+        for (long period = firstPeriod; period <= lastPeriod; period++)
+        {
+            if (appointment.getDoctor() != null)
+            {
+                stripes.add(stripe(DOCTOR, appointment.getDoctor().getId(), period));
+            }
+            stripes.add(stripe(ROOM, appointment.getRoom(), period));
+        }
+
+        return stripes.build().sorted().distinct().toArray();
+    }
+
+    private static int stripe(final long kind, final long id, final long period)
+    {
+        long hash = kind;
+        hash = 31 * hash + id;
+        hash = 31 * hash + period;
+
+        // Spread the bits so that neighbouring ids and periods use unrelated stripes.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return (int) (hash & (STRIPES - 1));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    // The number of lock stripes. This must be a power of two.
+    private static final int STRIPES = 1024;
+
+    // The length of the periods a time slot is divided into for locking.
+    private static final long PERIOD_MINUTES = 60L;
+
+    // Distinguish the locks of a doctor from those of a room with the same id.
+    private static final long DOCTOR = 1L;
+    private static final long ROOM = 2L;
+
+    private final ReentrantLock[] locks = IntStream.range(0, STRIPES)
+        .mapToObj(i -> new ReentrantLock())
+        .toArray(ReentrantLock[]::new);
+}
@@ -0,0 +1,46 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.time.LocalDateTime;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A single appointment to book as part of a batch passed to
+ * {@link AppointmentService#bookAll(java.util.List)}.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class BookingRequest
+{
+    /**
+     * The ssn of the patient who is booking the appointment.
+     */
+    private final long patientSsn;
+
+    /**
+     * The id of the doctor who is being booked with.
+     */
+    private final long doctorId;
+
+    /**
+     * The date and time of the appointment. This is null if the client did not
+     * supply a valid date, in which case the booking is rejected as invalid.
+     */
+    private final LocalDateTime date;
+
+    /**
+     * The room the appointment is in.
+     */
+    private final int room;
+
+    /**
+     * The length of the appointment in minutes.
+     */
+    private final int duration;
+}
@@ -0,0 +1,69 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The outcome of a single {@link BookingRequest} within a batch booking.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BookingResult
+{
+    /**
+     * The possible outcomes of a booking.
+     */
+    public enum Status
+    {
+        /**
+         * The appointment was booked.
+         */
+        BOOKED,
+
+        /**
+         * The doctor or room is already booked at the requested time.
+         */
+        CONFLICT,
+
+        /**
+         * The request referred to an unknown patient or doctor, or had no valid date.
+         */
+        INVALID
+    }
+
+    static BookingResult booked(final long appointmentId)
+    {
+        return new BookingResult(Status.BOOKED, appointmentId, null);
+    }
+
+    static BookingResult conflict(final String message)
+    {
+        return new BookingResult(Status.CONFLICT, null, message);
+    }
+
+    static BookingResult invalid(final String message)
+    {
+        return new BookingResult(Status.INVALID, null, message);
+    }
+
+    /**
+     * The outcome of the booking. This cannot be null.
+     */
+    private final Status status;
+
+    /**
+     * The id of the booked appointment, or null if it was not booked.
+     */
+    private final Long appointmentId;
+
+    /**
+     * Why the appointment was not booked, or null if it was booked.
+     */
+    private final String message;
+}
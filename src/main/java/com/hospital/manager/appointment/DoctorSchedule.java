@@ -0,0 +1,35 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The appointments of a doctor on one day.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class DoctorSchedule
+{
+    /**
+     * The id of the doctor.
+     */
+    private final long doctorId;
+
+    /**
+     * The day, in the yyyy-MM-dd form.
+     */
+    private final String day;
+
+    /**
+     * The appointments of the doctor starting on the day, in start order. This cannot
+     * be null.
+     */
+    private final List<ScheduleEntry> appointments;
+}
@@ -0,0 +1,345 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.hospital.manager.patient.Patient;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * The appointments of every doctor, by day, kept in memory so that a daily schedule
+ * is read without querying the database. Each day holds its appointments in start
+ * order in an array that is replaced, never changed, so reads take no lock.
+ * </p>
+ *
+ * <p>
+ * The schedules are loaded once at start-up and must be kept in sync by the
+ * {@link AppointmentService} whenever an appointment is booked, cancelled or moved,
+ * and by the patient service whenever a patient is renamed. Only the days touched by
+ * a change are replaced.
+ * </p>
+ *
+ * <p>
+ * Changes made through other instances of this application are not seen by these
+ * schedules, so a day is read again from the database when it is requested more than
+ * a fixed time after it was last read. This bounds how long such a change can go
+ * unnoticed.
+ * </p>
+ */
+@Slf4j
+@Component
+public final class DoctorSchedules
+{
+    /**
+     * @param repository The repository the appointments are read from.
+     * @param timeToLive How long the appointments of a day are used before they are
+     *                   read again.
+     */
+    public DoctorSchedules(
+        final AppointmentRepository repository,
+        @Value("${hospital.schedule.time-to-live:1m}") final Duration timeToLive)
+    {
+        this.repository = repository;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * @param doctorId The id of the doctor.
+     * @param day The day to return the appointments of. This cannot be null.
+     * @return The appointments of the doctor starting on the day, in start order. This
+     *         cannot be null.
+     */
+    public DoctorSchedule getSchedule(final long doctorId, final LocalDate day)
+    {
+        refreshIfExpired(doctorId, day.toEpochDay());
+
+        final ConcurrentMap<Long, Entry[]> days = schedules.get(doctorId);
+        final Entry[] entries = days == null ? null : days.get(day.toEpochDay());
+
+        if (entries == null)
+        {
+            return new DoctorSchedule(doctorId, day.toString(), Collections.emptyList());
+        }
+
+        final List<ScheduleEntry> appointments = new ArrayList<>(entries.length);
+        for (final Entry entry : entries)
+        {
+            final Name name = patientNames.getOrDefault(entry.patientSsn, Name.UNKNOWN);
+            appointments.add(new ScheduleEntry(entry.id, AppointmentTime.format(entry.start), entry.duration,
+                entry.room, entry.patientSsn, name.first, name.last));
+        }
+        return new DoctorSchedule(doctorId, day.toString(), Collections.unmodifiableList(appointments));
+    }
+
+    /**
+     * Show the new name of a patient on the schedules of their appointments.
+     * @param ssn The ssn of the patient.
+     * @param firstName The first name of the patient. This cannot be null.
+     * @param lastName The last name of the patient. This cannot be null.
+     */
+    public void renamePatient(final long ssn, final String firstName, final String lastName)
+    {
+        //recorded even for a patient without appointments, so that a booking that read
+        //the old name does not record it
+        patientNames.put(ssn, new Name(firstName, lastName));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * Record a persisted appointment on the schedule of its doctor, replacing the
+     * entry recorded for an older version of it. Nothing is changed if a newer version
+     * of the appointment has been recorded already.
+     * @param appointment The appointment to add. This cannot be null.
+     */
+    void add(final Appointment appointment)
+    {
+        if (appointment.getDoctor() == null || appointment.getPatient() == null)
+        {
+            return;
+        }
+
+        final Patient patient = appointment.getPatient();
+        patientNames.putIfAbsent(patient.getId(), new Name(patient.getFirstName(), patient.getLastName()));
+
+        record(new Entry(appointment.getId(), appointment.getVersion(), appointment.getDoctor().getId(),
+            patient.getId(), appointment.getStartMinute(), appointment.getDuration(), appointment.getRoom()));
+    }
+
+    /**
+     * Remove the appointment with the given id from the schedule of its doctor, e.g.
+     * after it was deleted without being loaded.
+     * @param appointmentId The id of the appointment to remove.
+     */
+    void remove(final long appointmentId)
+    {
+        entriesById.computeIfPresent(appointmentId, (id, current) -> {
+            unschedule(current);
+            return null;
+        });
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Load the schedules of every existing appointment with a doctor, and the names
+    // of their patients.
+    @PostConstruct
+    private void load()
+    {
+        loadedAt = System.nanoTime();
+        final List<Object[]> rows = repository.findScheduleEntries();
+
+        for (final Object[] row : rows)
+        {
+            final Entry entry = entryOf(row);
+            patientNames.putIfAbsent(entry.patientSsn, new Name((String) row[4], (String) row[5]));
+            entriesById.put(entry.id, entry);
+            schedule(entry);
+        }
+
+        log.info("Loaded the schedules of {} existing appointment(s).", rows.size());
+    }
+
+    // Read the appointments of a doctor on a day again if they were last read longer
+    // than the time to live ago. Only one of the requests that find the day expired
+    // reads it, while the others use the entries held.
+    private void refreshIfExpired(final long doctorId, final long day)
+    {
+        final long now = System.nanoTime();
+        final ConcurrentMap<Long, Long> days = refreshedAt.computeIfAbsent(doctorId, key -> new ConcurrentHashMap<>());
+        final Long refreshed = days.putIfAbsent(day, now);
+
+        if (refreshed == null ? now - loadedAt < timeToLiveNanos
+            : now - refreshed < timeToLiveNanos || !days.replace(day, refreshed, now))
+        {
+            return;
+        }
+
+        //only the entries recorded before the rows are read can be dropped, since an entry recorded later may
+        //belong to an appointment committed after the read
+        final ConcurrentMap<Long, Entry[]> schedule = schedules.get(doctorId);
+        final Entry[] entries = schedule == null ? null : schedule.get(day);
+
+        //only appointments starting on the day are on its schedule
+        final int from = Math.toIntExact(day * MINUTES_PER_DAY);
+        final List<Object[]> rows = repository.findDoctorScheduleEntries(doctorId, from,
+            Math.toIntExact(from + MINUTES_PER_DAY));
+        final Set<Long> storedIds = new HashSet<>();
+
+        for (final Object[] row : rows)
+        {
+            final Entry entry = entryOf(row);
+            storedIds.add(entry.id);
+            patientNames.put(entry.patientSsn, new Name((String) row[4], (String) row[5]));
+            record(entry);
+        }
+
+        //drop the appointments that were cancelled or moved to another day
+        if (entries != null)
+        {
+            for (final Entry entry : entries)
+            {
+                if (!storedIds.contains(entry.id) && entriesById.remove(entry.id, entry))
+                {
+                    unschedule(entry);
+                }
+            }
+        }
+    }
+
+    // Record an entry, replacing the entry of an older version of the same
+    // appointment, unless a newer version is recorded already.
+    private void record(final Entry entry)
+    {
+        entriesById.compute(entry.id, (id, current) -> {
+            if (current != null && current.version > entry.version)
+            {
+                return current;
+            }
+            if (current != null)
+            {
+                unschedule(current);
+            }
+            schedule(entry);
+            return entry;
+        });
+    }
+
+    // The entry of a row of AppointmentRepository.findScheduleEntries.
+    private static Entry entryOf(final Object[] row)
+    {
+        return new Entry((Long) row[0], (Long) row[1], (Long) row[2], (Long) row[3], (Integer) row[6],
+            (Integer) row[7], (Integer) row[8]);
+    }
+
+    // Add an entry to the day it starts on, keeping the day in start order.
+    private void schedule(final Entry entry)
+    {
+        schedules.computeIfAbsent(entry.doctorId, key -> new ConcurrentHashMap<>())
+            .compute(dayOf(entry), (day, entries) -> {
+                if (entries == null)
+                {
+                    return new Entry[] {entry};
+                }
+
+                final int position = -Arrays.binarySearch(entries, entry, ENTRY_ORDER) - 1;
+                final Entry[] changed = new Entry[entries.length + 1];
+                System.arraycopy(entries, 0, changed, 0, position);
+                changed[position] = entry;
+                System.arraycopy(entries, position, changed, position + 1, entries.length - position);
+                return changed;
+            });
+    }
+
+    // Remove an entry from the day it starts on, forgetting the day once it is empty.
+    private void unschedule(final Entry entry)
+    {
+        final ConcurrentMap<Long, Entry[]> days = schedules.get(entry.doctorId);
+        if (days == null)
+        {
+            return;
+        }
+
+        days.computeIfPresent(dayOf(entry), (day, entries) -> {
+            final int position = Arrays.binarySearch(entries, entry, ENTRY_ORDER);
+            if (position < 0)
+            {
+                return entries;
+            }
+            if (entries.length == 1)
+            {
+                return null;
+            }
+
+            final Entry[] changed = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, changed, 0, position);
+            System.arraycopy(entries, position + 1, changed, position, entries.length - position - 1);
+            return changed;
+        });
+    }
+
+    private static long dayOf(final Entry entry)
+    {
+        return Math.floorDiv(entry.start, MINUTES_PER_DAY);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // An appointment on the schedule of its doctor.
+    @RequiredArgsConstructor
+    private static final class Entry
+    {
+        private final long id;
+        private final long version;
+        private final long doctorId;
+        private final long patientSsn;
+        private final int start;
+        private final int duration;
+        private final int room;
+    }
+
+    // The name of a patient, shared by all of their entries.
+    @RequiredArgsConstructor
+    private static final class Name
+    {
+        // Shown for a patient whose name is not known, which should never happen.
+        private static final Name UNKNOWN = new Name("", "");
+
+        private final String first;
+        private final String last;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final AppointmentRepository repository;
+    private final long timeToLiveNanos;
+
+    // When the schedules were loaded at start-up, as System.nanoTime. This is when
+    // every day not in refreshedAt was read.
+    private volatile long loadedAt;
+
+    // When each day of each doctor was last read again, by doctor id and then by
+    // epoch day, as System.nanoTime.
+    private final ConcurrentMap<Long, ConcurrentMap<Long, Long>> refreshedAt = new ConcurrentHashMap<>();
+
+    // The entries of each doctor, by doctor id and then by epoch day.
+    private final ConcurrentMap<Long, ConcurrentMap<Long, Entry[]>> schedules = new ConcurrentHashMap<>();
+
+    // The entry of each appointment, by appointment id.
+    private final ConcurrentMap<Long, Entry> entriesById = new ConcurrentHashMap<>();
+
+    // The name of each patient with an appointment, by ssn.
+    private final ConcurrentMap<Long, Name> patientNames = new ConcurrentHashMap<>();
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator
+        .comparingInt((Entry entry) -> entry.start)
+        .thenComparingLong(entry -> entry.id);
+}
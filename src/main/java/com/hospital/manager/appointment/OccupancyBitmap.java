@@ -0,0 +1,165 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * The minutes taken by the appointments of a single doctor or room, kept as one
+ * bitmap per day with one bit per minute. Finding the next free or taken minute
+ * skips 64 minutes at a time, so searching a week for free time touches a few
+ * hundred words instead of every appointment in it.
+ * </p>
+ *
+ * <p>
+ * Days without any taken minute are not stored. Bits can be read by any number of
+ * threads, but changes to the same bitmap must not run concurrently.
+ * </p>
+ */
+final class OccupancyBitmap
+{
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * Mark the minutes in [start, end) as taken.
+     * @param start The first epoch minute to mark.
+     * @param end The epoch minute after the last one to mark.
+     */
+    void mark(final long start, final long end)
+    {
+        for (long minute = start; minute < end; minute++)
+        {
+            final AtomicLongArray words = days.computeIfAbsent(dayOf(minute), day -> new AtomicLongArray(WORDS));
+            final int bit = bitOf(minute);
+
+            words.set(bit >>> 6, words.get(bit >>> 6) | 1L << bit);
+        }
+    }
+
+    /**
+     * Mark the minutes in [start, end) as free.
+     * @param start The first epoch minute to clear.
+     * @param end The epoch minute after the last one to clear.
+     */
+    void clear(final long start, final long end)
+    {
+        for (long minute = start; minute < end; minute++)
+        {
+            final long day = dayOf(minute);
+            final AtomicLongArray words = days.get(day);
+
+            if (words != null)
+            {
+                final int bit = bitOf(minute);
+                words.set(bit >>> 6, words.get(bit >>> 6) & ~(1L << bit));
+
+                if (isEmpty(words))
+                {
+                    days.remove(day);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param from The first epoch minute to look at.
+     * @param to The epoch minute after the last one to look at.
+     * @return The first taken minute in [from, to), or to if every minute is free.
+     */
+    long nextTaken(final long from, final long to)
+    {
+        return next(from, to, true);
+    }
+
+    /**
+     * @param from The first epoch minute to look at.
+     * @param to The epoch minute after the last one to look at.
+     * @return The first free minute in [from, to), or to if every minute is taken.
+     */
+    long nextFree(final long from, final long to)
+    {
+        return next(from, to, false);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private long next(final long from, final long to, final boolean taken)
+    {
+        long minute = from;
+
+        while (minute < to)
+        {
+            final long dayEnd = (dayOf(minute) + 1) * MINUTES_PER_DAY;
+            final AtomicLongArray words = days.get(dayOf(minute));
+
+            // A day that is not stored is completely free.
+            if (words == null)
+            {
+                if (!taken)
+                {
+                    return minute;
+                }
+                minute = dayEnd;
+                continue;
+            }
+
+            // Look at the rest of the word holding this minute. The bits past the
+            // end of the day in the last word are never taken, so a free minute
+            // found there is ignored.
+            final int bit = bitOf(minute);
+            final long word = words.get(bit >>> 6);
+            final long remaining = (taken ? word : ~word) >>> bit;
+
+            if (remaining != 0)
+            {
+                final long found = minute + Long.numberOfTrailingZeros(remaining);
+
+                if (found < dayEnd)
+                {
+                    return Math.min(found, to);
+                }
+            }
+            minute = Math.min(minute + 64 - (bit & 63), dayEnd);
+        }
+        return to;
+    }
+
+    private static boolean isEmpty(final AtomicLongArray words)
+    {
+        for (int i = 0; i < WORDS; i++)
+        {
+            if (words.get(i) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long dayOf(final long minute)
+    {
+        return Math.floorDiv(minute, MINUTES_PER_DAY);
+    }
+
+    private static int bitOf(final long minute)
+    {
+        return (int) Math.floorMod(minute, MINUTES_PER_DAY);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    // The number of 64 bit words needed to hold one bit per minute of a day.
+    private static final int WORDS = (int) ((MINUTES_PER_DAY + 63) / 64);
+
+    // The bitmap of each day with at least one taken minute, by epoch day.
+    private final ConcurrentMap<Long, AtomicLongArray> days = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,52 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * An appointment as shown on the daily schedule of its doctor.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class ScheduleEntry
+{
+    /**
+     * The id of the appointment.
+     */
+    private final long appointmentId;
+
+    /**
+     * The start of the appointment, in the yyyy-MM-dd HH:mm form.
+     */
+    private final String date;
+
+    /**
+     * The length of the appointment, in minutes.
+     */
+    private final int duration;
+
+    /**
+     * The room the appointment is in.
+     */
+    private final int room;
+
+    /**
+     * The ssn of the patient.
+     */
+    private final long patientSsn;
+
+    /**
+     * The first name of the patient.
+     */
+    private final String patientFirstName;
+
+    /**
+     * The last name of the patient.
+     */
+    private final String patientLastName;
+}
@@ -0,0 +1,62 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Represents the REST endpoints that report how well the {@link EntityCache}
+ * instances of this service are working.
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Api(tags = "cache")
+@RequestMapping(path = "cache")
+public final class CacheController
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Allow a client to get the statistics of every cache.
+     * @return The statistics of each cache. This cannot be null.
+     */
+    @GetMapping(path = "statistics")
+    @ApiOperation("Retrieves the hit, miss and eviction statistics of every cache")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The statistics were retrieved successfully")
+    })
+    public List<CacheStatistics> statistics()
+    {
+        final List<CacheStatistics> statistics = new ArrayList<>();
+
+        for (final EntityCache<?, ?> cache : caches)
+        {
+            statistics.add(cache.getStatistics());
+        }
+
+        log.info("Returning the statistics of {} cache(s).", statistics.size());
+
+        return statistics;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final List<EntityCache<?, ?>> caches;
+}
@@ -0,0 +1,62 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A snapshot of the statistics of an {@link EntityCache}.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class CacheStatistics
+{
+    /**
+     * @return The fraction of lookups that were served from the cache, or 0 if there
+     *         have been no lookups.
+     */
+    public double getHitRate()
+    {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * The name of the cache.
+     */
+    private final String name;
+
+    /**
+     * The number of entities currently cached.
+     */
+    private final int size;
+
+    /**
+     * The maximum number of entities the cache holds.
+     */
+    private final int maximumSize;
+
+    /**
+     * The number of lookups served from the cache.
+     */
+    private final long hits;
+
+    /**
+     * The number of lookups that had to load the entity from the database.
+     */
+    private final long misses;
+
+    /**
+     * The number of entities evicted because the cache was full.
+     */
+    private final long evictions;
+
+    /**
+     * The number of entities dropped because they expired.
+     */
+    private final long expirations;
+}
@@ -0,0 +1,88 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * <p>
+ * Builds the responses of conditional GET requests, which carry the version of what
+ * the client read before in an If-None-Match header. A request whose version is
+ * still current is answered with 304 Not Modified, and any other successful request
+ * with the data and its version as the ETag.
+ * </p>
+ *
+ * <p>
+ * Only successful responses carry an ETag, so a request must be validated before it
+ * is compared with the current version. Otherwise an error could be cached by the
+ * client and later confirmed with a 304.
+ * </p>
+ */
+public final class ConditionalResponses
+{
+    /**
+     * @param request A validated request. This cannot be null.
+     * @param version The current version of the data requested. This cannot be null.
+     * @return Whether the If-None-Match header of the request names the version, or is
+     *         "*", so that the client already has the data and can be answered with
+     *         {@link #notModified}.
+     */
+    public static boolean isNotModified(final WebRequest request, final String version)
+    {
+        final String[] headers = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (headers == null)
+        {
+            return false;
+        }
+
+        final String quoted = "\"" + version + "\"";
+        for (final String header : headers)
+        {
+            for (final String tag : header.split(","))
+            {
+                final String trimmed = tag.trim();
+
+                //a weak tag matches its strong counterpart for If-None-Match
+                final String strong = trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed;
+                if (strong.equals("*") || strong.equals(quoted))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param version The version the client already has. This cannot be null.
+     * @param <T> The type of the data requested.
+     * @return A 304 Not Modified response with the version as its ETag. This cannot be
+     *         null.
+     */
+    public static <T> ResponseEntity<T> notModified(final String version)
+    {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version).build();
+    }
+
+    /**
+     * @param body The data requested.
+     * @param version The version of the data, which must have been read before the
+     *                data itself. This cannot be null.
+     * @param <T> The type of the data.
+     * @return A 200 OK response with the data and the version as its ETag. This cannot
+     *         be null.
+     */
+    public static <T> ResponseEntity<T> ok(final T body, final String version)
+    {
+        return ResponseEntity.ok().eTag(version).body(body);
+    }
+
+    private ConditionalResponses()
+    {
+        // This class only has static methods.
+    }
+}
@@ -0,0 +1,204 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * <p>
+ * A bounded, thread-safe, read-through cache of database entities. When the cache
+ * holds more than its maximum number of entries, the least recently used entry is
+ * evicted, and every entry expires a fixed time after it was loaded.
+ * </p>
+ *
+ * <p>
+ * Entities are loaded in a read-only transaction of their own and detached before
+ * they are cached, so a cached entity is never managed by (and never changed through)
+ * the persistence context of the request that loaded it. The loader must initialize
+ * every lazy association that readers of the cached entity need.
+ * </p>
+ *
+ * <p>
+ * Each instance of this application has its own cache. The owner of a cache must
+ * {@link #invalidate} an entry whenever it changes the entity, and changes made by
+ * other instances are only seen once the entry expires.
+ * </p>
+ *
+ * @param <K> The type of the entity ids.
+ * @param <V> The type of the entities.
+ */
+public final class EntityCache<K, V>
+{
+    /**
+     * @param name The name of this cache, used in its statistics.
+     * @param maximumSize The maximum number of entities held. This must be positive.
+     * @param timeToLive How long an entity is held after it is loaded.
+     * @param transactionManager The transaction manager used to load entities.
+     * @param entityManager The entity manager used to detach loaded entities.
+     */
+    public EntityCache(
+        final String name,
+        final int maximumSize,
+        final Duration timeToLive,
+        final PlatformTransactionManager transactionManager,
+        final EntityManager entityManager)
+    {
+        if (maximumSize < 1)
+        {
+            throw new IllegalArgumentException("The maximum size of cache " + name + " must be positive.");
+        }
+
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, CachedValue<V>> eldest)
+            {
+                if (size() > EntityCache.this.maximumSize)
+                {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Get an entity from the cache, loading it if it is not cached or has expired.
+     * @param key The id of the entity. This cannot be null.
+     * @param loader Loads the entity with the given id. It is called within a
+     *               read-only transaction and may throw if the entity does not exist,
+     *               in which case nothing is cached.
+     * @return The cached or loaded entity.
+     */
+    public V get(final K key, final Function<? super K, ? extends V> loader)
+    {
+        final long loadGeneration;
+
+        synchronized (entries)
+        {
+            final CachedValue<V> cached = entries.get(key);
+
+            if (cached != null)
+            {
+                if (System.nanoTime() - cached.loadedAt < timeToLiveNanos)
+                {
+                    hits++;
+                    return cached.value;
+                }
+
+                entries.remove(key);
+                expirations++;
+            }
+
+            misses++;
+            loadGeneration = generation;
+        }
+
+        //load outside of the lock so other lookups are not held up by the database
+        final V value = transactionTemplate.execute(status -> {
+            final V loaded = loader.apply(key);
+            entityManager.detach(loaded);
+            return loaded;
+        });
+
+        synchronized (entries)
+        {
+            //an invalidation during the load may mean the loaded entity is stale
+            if (loadGeneration == generation)
+            {
+                entries.put(key, new CachedValue<>(value, System.nanoTime()));
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Remove an entity from the cache. This must be called whenever the entity is
+     * changed or removed.
+     * @param key The id of the entity.
+     */
+    public void invalidate(final K key)
+    {
+        synchronized (entries)
+        {
+            entries.remove(key);
+            generation++;
+        }
+    }
+
+    /**
+     * Remove every entity from the cache.
+     */
+    public void invalidateAll()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+            generation++;
+        }
+    }
+
+    /**
+     * @return A snapshot of the statistics of this cache. This cannot be null.
+     */
+    public CacheStatistics getStatistics()
+    {
+        synchronized (entries)
+        {
+            return new CacheStatistics(name, entries.size(), maximumSize, hits, misses, evictions, expirations);
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    @RequiredArgsConstructor
+    private static final class CachedValue<V>
+    {
+        private final V value;
+        private final long loadedAt;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final String name;
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    // The cached entries in least to most recently used order. This also guards
+    // every counter below.
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+
+    // Incremented by every invalidation, so that a load that overlaps an
+    // invalidation does not cache a stale entity.
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+}
@@ -0,0 +1,191 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Keeps the version of one kind of entity in memory, so that clients can be told that
+ * what they read before is still current without reading it again, and without
+ * reading the database either. The version of the whole collection changes whenever
+ * any entity changes, and the version of a single entity changes whenever that entity
+ * changes.
+ * </p>
+ *
+ * <p>
+ * The version of the collection is a fingerprint of its table, the number of rows,
+ * the greatest id and the sum of the version columns, which is read again every
+ * refresh interval. Ids are never reused and every update increments the version
+ * column, so any committed change alters the fingerprint, and every instance of this
+ * application that has read the same rows agrees on it. The changes made through this
+ * instance since the last read are counted in memory and added to the version, so
+ * they are seen at once. A change made through another instance is seen after at
+ * most one refresh interval.
+ * </p>
+ *
+ * <p>
+ * The version of a single entity is made from its id and its version column.
+ * </p>
+ *
+ * <p>
+ * The owner of a counter must call {@link #changed} after every change to an entity
+ * is committed, including its creation and deletion. The version of the collection
+ * must be read before the data it describes, so that a change in between makes the
+ * version out of date rather than the data.
+ * </p>
+ *
+ * @param <T> The type of the entities whose changes are counted.
+ */
+@Slf4j
+public final class ModificationCounter<T>
+{
+    /**
+     * @param name The name of the entities, which starts every version. This cannot be
+     *             null.
+     * @param table The table the entities are stored in, which must have an id and a
+     *              version column. This cannot be null.
+     * @param jdbc Reads the fingerprint of the table.
+     * @param refreshInterval How long the fingerprint is used before it is read again.
+     */
+    public ModificationCounter(final String name, final String table, final JdbcTemplate jdbc,
+        final Duration refreshInterval)
+    {
+        this.name = name;
+        this.query = "SELECT COUNT(*), MAX(id), SUM(version) FROM " + table;
+        this.jdbc = jdbc;
+        this.refreshInterval = refreshInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, name + "-modifications");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Record committed changes to the entities, which changes the version of the
+     * collection. A batch of changes only needs to be recorded once.
+     */
+    public void changed()
+    {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * @return The version of the collection of every entity. This cannot be null.
+     */
+    public String collectionVersion()
+    {
+        //read the fingerprint first, so a change counted in between is never lost
+        final Fingerprint read = fingerprint;
+        final long counted = changes.get();
+
+        if (counted == read.changes)
+        {
+            return read.version;
+        }
+        //the changes counted here are only known to this instance, so name it too
+        return read.version + "." + INSTANCE + "." + Long.toString(counted, Character.MAX_RADIX);
+    }
+
+    /**
+     * @param id The id of an entity.
+     * @param version The value of the version column of the entity.
+     * @return The version of the entity. This cannot be null.
+     */
+    public String entityVersion(final long id, final long version)
+    {
+        return name + "-" + Long.toString(id, Character.MAX_RADIX) + "."
+            + Long.toString(version, Character.MAX_RADIX);
+    }
+
+    /**
+     * Read the fingerprint of the table again, which then includes every change
+     * counted so far.
+     */
+    public void refresh()
+    {
+        //changes counted from here on may not be in the fingerprint, so stay counted
+        final long counted = changes.get();
+
+        fingerprint = jdbc.queryForObject(query, (row, rowNumber) -> new Fingerprint(
+            name + "-" + Long.toString(row.getLong(1), Character.MAX_RADIX)
+                + "-" + Long.toString(row.getLong(2), Character.MAX_RADIX)
+                + "-" + Long.toString(row.getLong(3), Character.MAX_RADIX),
+            counted));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    @PostConstruct
+    private void start()
+    {
+        refresh();
+
+        scheduler.scheduleWithFixedDelay(() -> {
+            try
+            {
+                refresh();
+            }
+            //keep counting from the previous fingerprint and try again at the next refresh
+            catch (final RuntimeException e)
+            {
+                log.warn("Could not refresh the version of the {} table.", name, e);
+            }
+        }, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop()
+    {
+        scheduler.shutdownNow();
+    }
+
+    // The version of the table as last read, and the number of changes counted by then.
+    private static final class Fingerprint
+    {
+        Fingerprint(final String version, final long changes)
+        {
+            this.version = version;
+            this.changes = changes;
+        }
+
+        final String version;
+        final long changes;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final String name;
+    private final String query;
+    private final JdbcTemplate jdbc;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler;
+
+    // Only ever increases, so the versions made from it are never repeated.
+    private final AtomicLong changes = new AtomicLong();
+
+    // Replaced as a whole by each refresh.
+    private volatile Fingerprint fingerprint = new Fingerprint("", 0);
+
+    // Tells apart the changes counted by different instances of this application.
+    private static final String INSTANCE =
+        Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+}
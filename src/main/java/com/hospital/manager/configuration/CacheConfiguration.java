@@ -0,0 +1,110 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.configuration;
+
+import java.time.Duration;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.hospital.manager.appointment.Appointment;
+import com.hospital.manager.cache.EntityCache;
+import com.hospital.manager.cache.ModificationCounter;
+import com.hospital.manager.doctor.Doctor;
+import com.hospital.manager.patient.Patient;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Provides the {@link EntityCache} instances that sit in front of the doctor and
+ * patient lookups, and the {@link ModificationCounter} instances that tell clients
+ * whether the doctors, patients and appointments they read have changed since.
+ * </p>
+ *
+ * <p>
+ * The size and lifetime of each cache is configured through the
+ * hospital.cache.&lt;name&gt;.maximum-size and hospital.cache.&lt;name&gt;.time-to-live
+ * properties. The time to live bounds how long a change made by another instance of
+ * this application can go unnoticed.
+ * </p>
+ *
+ * <p>
+ * The version of each table is read again every hospital.modification.refresh-interval,
+ * which likewise bounds how long a change made by another instance can go unnoticed
+ * by the clients of this one.
+ * </p>
+ */
+@Slf4j
+@Configuration
+class CacheConfiguration
+{
+    /**
+     * @return The cache of doctors by employee id. This cannot be null.
+     */
+    @Bean
+    public EntityCache<Long, Doctor> doctorCache(
+        final PlatformTransactionManager transactionManager,
+        final EntityManager entityManager,
+        @Value("${hospital.cache.doctor.maximum-size:10000}") final int maximumSize,
+        @Value("${hospital.cache.doctor.time-to-live:10m}") final Duration timeToLive)
+    {
+        log.info("Caching up to {} doctor(s) for {}.", maximumSize, timeToLive);
+
+        return new EntityCache<>("doctor", maximumSize, timeToLive, transactionManager, entityManager);
+    }
+
+    /**
+     * @return The cache of patients by ssn. This cannot be null.
+     */
+    @Bean
+    public EntityCache<Long, Patient> patientCache(
+        final PlatformTransactionManager transactionManager,
+        final EntityManager entityManager,
+        @Value("${hospital.cache.patient.maximum-size:100000}") final int maximumSize,
+        @Value("${hospital.cache.patient.time-to-live:10m}") final Duration timeToLive)
+    {
+        log.info("Caching up to {} patient(s) for {}.", maximumSize, timeToLive);
+
+        return new EntityCache<>("patient", maximumSize, timeToLive, transactionManager, entityManager);
+    }
+
+    /**
+     * @return The counter of the changes made to doctors. This cannot be null.
+     */
+    @Bean
+    public ModificationCounter<Doctor> doctorModifications(
+        final JdbcTemplate jdbc,
+        @Value("${hospital.modification.refresh-interval:5s}") final Duration refreshInterval)
+    {
+        return new ModificationCounter<>("doctor", "doctor", jdbc, refreshInterval);
+    }
+
+    /**
+     * @return The counter of the changes made to patients. This cannot be null.
+     */
+    @Bean
+    public ModificationCounter<Patient> patientModifications(
+        final JdbcTemplate jdbc,
+        @Value("${hospital.modification.refresh-interval:5s}") final Duration refreshInterval)
+    {
+        return new ModificationCounter<>("patient", "patient", jdbc, refreshInterval);
+    }
+
+    /**
+     * @return The counter of the changes made to appointments. This cannot be null.
+     */
+    @Bean
+    public ModificationCounter<Appointment> appointmentModifications(
+        final JdbcTemplate jdbc,
+        @Value("${hospital.modification.refresh-interval:5s}") final Duration refreshInterval)
+    {
+        return new ModificationCounter<>("appointment", "appointment", jdbc, refreshInterval);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.configuration;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * <p>
+ * A sequence based id generator that reserves ids from the database in blocks. Each
+ * call to the database sequence reserves a whole block of ids, which are then handed
+ * out from memory, so most inserts no longer need a separate round trip to fetch
+ * their id.
+ * </p>
+ *
+ * <p>
+ * This is safe when several instances of this application share one database,
+ * because every instance reserves its blocks from the same database sequence and no
+ * two blocks overlap. The database sequence must be incremented by the block size.
+ * The sequences are created by the schema migrations (see V1__create_schema.sql)
+ * with an increment of 50, and Hibernate refuses to start with any other block size,
+ * so changing it takes a new migration that alters the sequences.
+ * </p>
+ *
+ * <p>
+ * The block size is read from the {@value #ALLOCATION_SIZE} property (set through
+ * spring.jpa.properties) and defaults to {@value #DEFAULT_ALLOCATION_SIZE}. A block
+ * size of 1 fetches every id from the database.
+ * </p>
+ */
+public final class PooledSequenceGenerator extends SequenceStyleGenerator
+{
+    /**
+     * The name of the property holding the number of ids reserved at a time.
+     */
+    public static final String ALLOCATION_SIZE = "hospital.id.allocation_size";
+
+    /**
+     * The number of ids reserved at a time if no block size is configured.
+     */
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(final Type type, final Properties params, final ServiceRegistry serviceRegistry)
+        throws MappingException
+    {
+        final Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        final int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE, settings, DEFAULT_ALLOCATION_SIZE);
+
+        if (allocationSize < 1)
+        {
+            throw new MappingException(ALLOCATION_SIZE + " must be at least 1, but was " + allocationSize + ".");
+        }
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
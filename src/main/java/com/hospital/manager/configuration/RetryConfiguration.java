@@ -0,0 +1,43 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.configuration;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.hospital.manager.retry.OptimisticRetry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Provides the {@link OptimisticRetry} used to retry changes that conflicted with
+ * concurrent changes to the same records.
+ * </p>
+ *
+ * <p>
+ * The policy is configured through the hospital.retry.maximum-attempts and
+ * hospital.retry.backoff properties.
+ * </p>
+ */
+@Slf4j
+@Configuration
+class RetryConfiguration
+{
+    /**
+     * @return The retry policy for optimistic locking failures. This cannot be null.
+     */
+    @Bean
+    public OptimisticRetry optimisticRetry(
+        @Value("${hospital.retry.maximum-attempts:5}") final int maximumAttempts,
+        @Value("${hospital.retry.backoff:10ms}") final Duration backoff)
+    {
+        log.info("Retrying conflicting changes up to {} time(s), backing off by {}.", maximumAttempts, backoff);
+
+        return new OptimisticRetry(maximumAttempts, backoff);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Switches on the Hibernate second-level cache and query cache, backed by an
+ * in-process Ehcache instance, when the {@value #PROFILE} profile is active. Without
+ * the profile the cache annotations on the entities and repositories have no effect,
+ * so the two set-ups can be measured against each other by toggling the profile.
+ * </p>
+ *
+ * <p>
+ * Every cache region is created up front. The size and lifetime of each region are
+ * configured through the hospital.second-level-cache.&lt;region&gt;.maximum-size and
+ * hospital.second-level-cache.&lt;region&gt;.time-to-live properties. Each instance of
+ * this application has its own cache, so the time to live bounds how long a change
+ * made by another instance can go unnoticed.
+ * </p>
+ */
+@Slf4j
+@Configuration
+@Profile(SecondLevelCacheConfiguration.PROFILE)
+class SecondLevelCacheConfiguration
+{
+    /**
+     * The profile that switches on the second-level cache.
+     */
+    static final String PROFILE = "l2cache";
+
+    /**
+     * @param environment The environment the region settings are read from.
+     * @return The cache manager holding every second-level cache region. This cannot
+     *         be null.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(final Environment environment)
+    {
+        final CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        final CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        for (final String region : REGIONS)
+        {
+            final long maximumSize = environment.getProperty(
+                PROPERTY_PREFIX + region + ".maximum-size", Long.class, DEFAULT_MAXIMUM_SIZE);
+            final Duration timeToLive = environment.getProperty(
+                PROPERTY_PREFIX + region + ".time-to-live", Duration.class, DEFAULT_TIME_TO_LIVE);
+
+            log.info("Creating second-level cache region {} holding up to {} entries for {}.",
+                region, maximumSize, timeToLive);
+
+            cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maximumSize))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive))));
+        }
+
+        // The update timestamps tell Hibernate which cached query results are stale.
+        // There is one entry per table and losing one would serve stale results, so
+        // this region is never bounded by the settings above.
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(TIMESTAMPS_SIZE))
+                    .withExpiry(ExpiryPolicyBuilder.noExpiration())));
+
+        return cacheManager;
+    }
+
+    /**
+     * @param secondLevelCacheManager The cache manager holding the cache regions.
+     * @return The customizer that switches on the second-level and query caches. This
+     *         cannot be null.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(final CacheManager secondLevelCacheManager)
+    {
+        log.info("Enabling the Hibernate second-level and query caches.");
+
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            // Every region is created above, so a missing one is a mapping mistake.
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // The cached doctor collections are the inverse side of the doctor of an
+            // appointment or patient, so they are evicted when that doctor changes.
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+
+    // The regions named by the @Cache annotations and query hints of the entities and
+    // repositories, plus the region Hibernate uses for queries that do not name one.
+    private static final List<String> REGIONS = List.of(
+        "doctor",
+        "doctor_appointments",
+        "doctor_patients",
+        "doctor_by_phone",
+        "patient",
+        "patient_by_phone",
+        RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    private static final String PROPERTY_PREFIX = "hospital.second-level-cache.";
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+    private static final long TIMESTAMPS_SIZE = 1_000L;
+}
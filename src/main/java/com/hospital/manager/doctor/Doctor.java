@@ -10,21 +10,36 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
-import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This class represents doctors in the hospital management system.
  * Each doctor will have an id, first name, last name and phone.
+ * Doctors and their collections are kept in the second-level cache when it is enabled.
+ * No two doctors have the same phone number.
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "doctor_phone_key", columnNames = "phone"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctor")
 @Getter
 @Setter
 @ToString
@@ -37,7 +52,10 @@ public final class Doctor {
      * yet.
      */
     @Id
-    @SequenceGenerator(name = "doctor_sequence", allocationSize = 1)
+    @GenericGenerator(
+        name = "doctor_sequence",
+        strategy = "com.hospital.manager.configuration.PooledSequenceGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "doctor_sequence"))
     @GeneratedValue(strategy = GenerationType.SEQUENCE,generator = "doctor_sequence")
     private long id;
 
@@ -60,14 +78,35 @@ public final class Doctor {
     private String phone;
 
     /**
-     * A list of all of a doctors appointments. This cannot be null.
+     * The number of times this doctor has been changed. Hibernate checks and
+     * increments it on every update of the loaded entity, and the partial updates of
+     * the {@link DoctorUpdateRepository} increment it too.
      */
-    @OneToMany
+    @Version
+    private long version;
+
+    /**
+     * A list of all of a doctors appointments. This cannot be null. It is the inverse
+     * side of {@link Appointment#getDoctor()}, so it is only read from the
+     * appointment table and changing it has no effect on the database. It is loaded
+     * on first access, together with the appointments of other loaded doctors.
+     */
+    @OneToMany(mappedBy = "doctor", fetch = FetchType.LAZY)
+    @BatchSize(size = BATCH_SIZE)
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctor_appointments")
     private List<Appointment> appointments = new ArrayList<>();
 
     /**
-     * A list of all of a doctors patients. This cannot be null.
+     * A list of all of a doctors patients. This cannot be null. It is the inverse
+     * side of {@link Patient#getDoctor()} and is loaded like {@link #appointments}.
      */
-    @OneToMany
+    @OneToMany(mappedBy = "doctor", fetch = FetchType.LAZY)
+    @BatchSize(size = BATCH_SIZE)
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctor_patients")
     private List<Patient> patients = new ArrayList<>();
+
+    // The number of doctors whose collections are loaded by a single query.
+    private static final int BATCH_SIZE = 50;
 }
\ No newline at end of file
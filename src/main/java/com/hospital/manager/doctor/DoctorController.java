@@ -5,10 +5,15 @@ package com.hospital.manager.doctor;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
-import com.hospital.manager.appointment.Appointment;
+import com.hospital.manager.appointment.AppointmentService;
+import com.hospital.manager.appointment.AppointmentTime;
+import com.hospital.manager.appointment.DoctorSchedule;
+import com.hospital.manager.cache.ConditionalResponses;
 import com.hospital.manager.exception.CustomException.FailedRequestException;
 import com.hospital.manager.exception.CustomException.NotFoundException;
-import com.hospital.manager.patient.Patient;
+import com.hospital.manager.export.NdjsonExporter;
+import com.hospital.manager.lookup.BatchLookup;
+import com.hospital.manager.lookup.LookupResult;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiModel;
@@ -18,19 +23,25 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -57,46 +68,66 @@ public final class DoctorController {
      * </p>
      *
      * @param payload The payload containing the id of the doctor to return. Return a list of all doctors if null.
-     * @return The doctor with given id or the list of all doctors.
+     * @param request The request, whose If-None-Match header may hold the version the client already has.
+     * @return The doctor with given id or the list of all doctors, with their version as the ETag.
      */
     @GetMapping(path = "get")
     @ApiOperation("Retrieves a list of doctors or a single doctor.")
     @ApiResponses({
             @ApiResponse(code = 200, message = "If the doctor(s) were retrieved successfully"),
+            @ApiResponse(code = 304, message = "If the doctor(s) did not change since the version in If-None-Match"),
+            @ApiResponse(code = 400, message = "If the id does not belong to any doctor. This never carries an ETag"),
             @ApiResponse(code = 404, message = "If no doctor(s) correspond to the criteria supplied")
     })
-    public List<DoctorResponsePayload> get(final RetrievalRequestPayload payload){
-        //FIXME payload.getID() is always null, forces this method to always return a list of all doctors
+    public ResponseEntity<List<DoctorResponsePayload>> get(final RetrievalRequestPayload payload,
+            final WebRequest request){
         log.info("Attempting to find the doctor pertaining to request={}",payload);
+
         //return all doctors if the client does not supply an id
         if (payload.getId() == null){
+            //answer 304 Not Modified without reading the doctors if the client already has the latest version.
+            //the version is read first, so a change made while the doctors are read makes it out of date
+            final String version = service.getDoctorsVersion();
+            if (ConditionalResponses.isNotModified(request, version)){
+                return ConditionalResponses.notModified(version);
+            }
+
             //create a list to add all of the doctors to in the form of DoctorResponsePayload
             final List<DoctorResponsePayload> results = new ArrayList<>();
 
-            //get a list of all doctors from the database
-            final List<Doctor> doctors = service.getDoctors();
+            //get the summaries of all doctors from the database in a single query
+            final List<DoctorSummary> doctors = service.getDoctorSummaries();
 
             //log the number of doctors found
             log.info("Found {} result(s). Returning them",doctors.size());
 
             //loop and put all doctors into the ResponsePayload list
-            for (final Doctor doctor: doctors){
+            for (final DoctorSummary doctor: doctors){
                 results.add(new DoctorResponsePayload(doctor));
             }
 
             //return the responsePayload list
-            return Collections.unmodifiableList(results);
+            return ConditionalResponses.ok(Collections.unmodifiableList(results), version);
+        }
+        //answer 304 Not Modified from the version of the doctor alone, so the doctor and its associations
+        //are only loaded when the client does not have them yet. This fails if there is no such doctor
+        final long current = service.readDoctorVersion(payload.getId());
+        final String known = service.getDoctorVersion(payload.getId(), current);
+        if (ConditionalResponses.isNotModified(request, known)){
+            return ConditionalResponses.notModified(known);
         }
-        //get the doctor with given id from the database
-        final Doctor doctor = service.getDoctor(payload.getId());
 
-        //return the doctor as a single entry in a list
+        //get the doctor with given id, at least as recent as that version
+        final Doctor doctor = service.getDoctor(payload.getId(), current);
+
+        //return the doctor as a single entry in a list, labelled with the version of the doctor that is returned
         if (doctor != null){
+            final String version = service.getDoctorVersion(doctor);
             final DoctorResponsePayload responsePayload = new DoctorResponsePayload(doctor);
 
             log.info("returning doctor={}",responsePayload);
 
-            return Collections.unmodifiableList(List.of(responsePayload));
+            return ConditionalResponses.ok(Collections.unmodifiableList(List.of(responsePayload)), version);
         }
         //Throw an exception if no id is supplied or the supplied id returns nothing.
         throw new NotFoundException("Unable to load doctor(s). Please make sure all information is correct " +
@@ -105,29 +136,95 @@ public final class DoctorController {
 
     /**
      * <p>
-     *     Allow a client to update a {@link Doctor} information.
+     *     Allow the client to get several {@link Doctor} by id in one call, read in a
+     *     single query.
+     * </p>
+     *
+     * @param payload The payload containing the ids of the doctors to return.
+     * @return The doctors in the order their ids were supplied, and the ids that do not
+     *         belong to any doctor.
+     */
+    @GetMapping(path = "lookup")
+    @ApiOperation("Retrieves several doctors by id.")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "If the doctors that exist were retrieved successfully"),
+            @ApiResponse(code = 400, message = "If no ids or more than " + BatchLookup.MAX_IDS + " ids are supplied")
+    })
+    public LookupResult<DoctorResponsePayload> lookup(final LookupRequestPayload payload){
+        final LookupResult<DoctorResponsePayload> result = BatchLookup.find(
+                payload.getIds(),
+                ids -> toResponsePayloads(service.getDoctorSummaries(ids)),
+                DoctorResponsePayload::getId);
+
+        log.info("Found {} of the requested doctor(s), {} missing",
+                result.getResults().size(), result.getMissingIds().size());
+        return result;
+    }
+
+    /**
+     * <p>
+     *     Allow the client to get the appointments of a {@link Doctor} on one day,
+     *     with the names of their patients. The schedule is read from memory, so it
+     *     can be polled often without querying the database.
+     * </p>
+     *
+     * @param id The id of the doctor.
+     * @param day The day in the form yyyy-MM-dd, or null for today.
+     * @return The appointments of the doctor starting on the day, in start order.
+     */
+    @GetMapping(path = "{id}/schedule")
+    @ApiOperation("Retrieves the appointments of a doctor on one day.")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "If the schedule was retrieved successfully"),
+            @ApiResponse(code = 400, message = "If the doctor does not exist or the day is not valid")
+    })
+    public DoctorSchedule schedule(@PathVariable final long id,
+                                   @RequestParam(required = false) final String day){
+        //default to today, the day clinicians ask for
+        final LocalDate date;
+        try {
+            date = day == null ? LocalDate.now() : LocalDate.parse(day);
+        }
+        catch (DateTimeParseException e){
+            throw new FailedRequestException("The day must be in the form yyyy-MM-dd. Please try again.");
+        }
+        AppointmentTime.checkSupported(date.atStartOfDay());
+        return appointmentService.getDoctorSchedule(id, date);
+    }
+
+    /**
+     * <p>
+     *     Allow the client to export every {@link Doctor} as newline-delimited JSON.
+     *     The doctors are streamed from the database as they are written.
+     * </p>
+     *
+     * @return The response streaming one doctor per line.
+     */
+    @GetMapping(path = "export", produces = NdjsonExporter.NDJSON)
+    @ApiOperation("Exports all doctors as newline-delimited JSON.")
+    public ResponseEntity<StreamingResponseBody> export(){
+        log.info("Exporting all doctors");
+        return exporter.export(service::streamDoctors, DoctorResponsePayload::new);
+    }
+
+    /**
+     * <p>
+     *     Allow a client to update a {@link Doctor} information. Only the supplied
+     *     details are changed, and either all of them are changed or none are.
      * </p>
      * @param payload The payload containing the new information.
      * @return The doctors new information.
      */
     @PutMapping(path = "update")
     public DoctorResponsePayload update (final UpdateRequestPayload payload){
+        //change every supplied detail in a single statement
+        final Doctor doctor = service.update(
+                payload.getId(),
+                payload.getFirstName(),
+                payload.getLastName(),
+                payload.getPhone());
 
-        //if new information is not null, change it and update isSuccessful
-        if (payload.getFirstName() != null){
-            service.changeFirstName(payload.getId(),payload.getFirstName());
-        }
-        if (payload.getLastName() != null){
-            service.changeLastName(payload.getId(),payload.getLastName());
-        }
-        if (payload.getPhone() != null){
-            service.changePhone(payload.getId(),payload.getPhone());
-        }
-
-        //return the patients new information
-        Doctor doctor = service.getDoctor(payload.getId());
         return new DoctorResponsePayload(doctor);
-
     }
 
     /**
@@ -140,7 +237,9 @@ public final class DoctorController {
      */
     @PostMapping(path = "add")
     public HttpStatus hire(final CreateRequestPayload payload){
-        return service.hire(payload.firstName, payload.lastName, payload.phone);
+        final Doctor doctor = service.hire(payload.firstName, payload.lastName, payload.phone);
+        log.info("Hired doctor with id={}", doctor.getId());
+        return HttpStatus.OK;
     }
 
     /**
@@ -156,6 +255,17 @@ public final class DoctorController {
         return service.remove(payload.getId());
     }
 
+    // --------------------------------------------------------------------
+    // :: Private Interface
+    //helper method to turn doctor summaries into the payloads returned to the client
+    private static List<DoctorResponsePayload> toResponsePayloads(final List<DoctorSummary> doctors){
+        final List<DoctorResponsePayload> results = new ArrayList<>(doctors.size());
+        for (final DoctorSummary doctor : doctors){
+            results.add(new DoctorResponsePayload(doctor));
+        }
+        return results;
+    }
+
     // --------------------------------------------------------------------
     // :: Private Nested Classes
     /**
@@ -205,14 +315,32 @@ public final class DoctorController {
     @Getter
     @ToString
     @JsonIgnoreProperties(ignoreUnknown = true)
-    @NoArgsConstructor
+    @RequiredArgsConstructor
     @ApiModel(description = "The request details supplied when retrieving a doctor's details.")
     private static final class RetrievalRequestPayload{
         @ApiModelProperty(
                 value = "The unique, database identifier for the doctor to retrieve" +
                         " If null, return all doctors in the database",
                 example = "1024")
-        private Long id;
+        private final Long id;
+    }
+
+    /**
+     * <p>
+     *     Represents the payload that will be received from the client.
+     *     when the information of several {@link Doctor} is requested.
+     * </p>
+     */
+    @ToString
+    @Getter
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when retrieving several doctors' details.")
+    private static final class LookupRequestPayload{
+        @ApiModelProperty(
+                value = "The unique, database identifiers of the doctors to retrieve, separated by commas.",
+                required = true,
+                example = "1,2,3")
+        private final String ids;
     }
 
     /**
@@ -239,7 +367,9 @@ public final class DoctorController {
     /**
      * <p>
      *     Represents the payload that will be returned to the client.
-     *     when they request a {@link Doctor}'s information.
+     *     when they request a {@link Doctor}'s information, and a single line of
+     *     the doctor export. It does not include the doctor's appointments and
+     *     patients, so returning a doctor never loads its collections.
      * </p>
      */
     @ToString
@@ -250,19 +380,22 @@ public final class DoctorController {
             firstName = doctor.getFirstName();
             lastName = doctor.getLastName();
             phone = doctor.getPhone();
-            appointments = doctor.getAppointments();
-            patients = doctor.getPatients();
-
+        }
+        private DoctorResponsePayload(final DoctorSummary doctor){
+            id = doctor.getId();
+            firstName = doctor.getFirstName();
+            lastName = doctor.getLastName();
+            phone = doctor.getPhone();
         }
         private final Long id;
         private final String firstName;
         private final String lastName;
         private final String phone;
-        private final List<Appointment> appointments;
-        private final List<Patient> patients;
     }
 
     // --------------------------------------------------------------------
     // :: Private Members
     private final DoctorService service;
+    private final NdjsonExporter exporter;
+    private final AppointmentService appointmentService;
 }
\ No newline at end of file
@@ -4,17 +4,91 @@
 package com.hospital.manager.doctor;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * This interface will allow access to the database.
  */
-public interface DoctorRepository extends JpaRepository<Doctor,Long> {
+public interface DoctorRepository extends JpaRepository<Doctor,Long>, DoctorUpdateRepository {
     @Query("SELECT s FROM Doctor s WHERE s.id = ?1")
     Optional<Doctor> findDoctorByEmpId(final long id);
 
+    /**
+     * Read the version of a doctor without loading it or its associations.
+     * @param id The id of the doctor.
+     * @return The version of the doctor, or empty if no doctor has the given id.
+     */
+    @Query("SELECT s.version FROM Doctor s WHERE s.id = ?1")
+    Optional<Long> findVersionById(final long id);
+
+    /**
+     * Delete a doctor in a single statement, without loading them first.
+     * @param id The employee id of the doctor to delete.
+     * @return The number of doctors deleted, 0 if no doctor has the given id.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Doctor s WHERE s.id = ?1")
+    int deleteDoctorByEmpId(final long id);
+
+    /**
+     * Find the doctor that has a phone number, which is used to tell a client who
+     * already has a number when the database refuses to give it to another doctor.
+     * The result of this query is kept in the query cache when the second-level cache
+     * is enabled.
+     * @param phone The phone number.
+     * @return The doctor with the phone number, or empty if no doctor has it.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = "doctor_by_phone")
+    })
     @Query("SELECT s FROM Doctor s WHERE s.phone = ?1")
     Optional<Doctor> findDoctorByPhone(final String phone);
+
+    /**
+     * @return The columns returned to clients of every doctor, read in a single
+     *         statement without loading the doctor entities. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.doctor.DoctorSummary(s.id, s.firstName, s.lastName, s.phone)"
+        + " FROM Doctor s")
+    List<DoctorSummary> findDoctorSummaries();
+
+    /**
+     * @param ids The ids of the doctors to find.
+     * @return The columns returned to clients of the doctors with the given ids, in
+     *         no particular order, read in a single statement. Ids without a doctor
+     *         are left out. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.doctor.DoctorSummary(s.id, s.firstName, s.lastName, s.phone)"
+        + " FROM Doctor s WHERE s.id IN ?1")
+    List<DoctorSummary> findDoctorSummariesById(final Collection<Long> ids);
+
+    /**
+     * @return A stream of every doctor, read with a forward-only cursor in batches of
+     *         1000 rows. The rows bypass the second-level cache. The stream must be
+     *         consumed within a transaction and closed afterwards.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT s FROM Doctor s")
+    Stream<Doctor> streamAllDoctors();
 }
\ No newline at end of file
@@ -3,16 +3,23 @@
 */
 package com.hospital.manager.doctor;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import com.hospital.manager.cache.EntityCache;
+import com.hospital.manager.cache.ModificationCounter;
 import com.hospital.manager.exception.CustomException.FailedRequestException;
 import com.hospital.manager.exception.CustomException.InvalidIdException;
+import com.hospital.manager.patient.Patient;
 
 /**
  * This class acts as an in-between for the {@link DoctorController} and the {@link DoctorRepository}.
@@ -33,12 +40,107 @@ public final class DoctorService {
     }
 
     /**
-     * Allow a user to get a single {@link Doctor} from the database.
+     * Getter for the summaries of all the {@link Doctor} in the database, read in a single query.
+     * @return an unmodifiable list of the summaries of all doctors. This cannot be null.
+     */
+    public List<DoctorSummary> getDoctorSummaries(){
+        return Collections.unmodifiableList(repository.findDoctorSummaries());
+    }
+
+    /**
+     * Getter for a stream of all the {@link Doctor} in the database, read without
+     * loading them all into memory.
+     * @return a stream of all {@link Doctor} objects. This must be consumed within a
+     *         transaction and closed afterwards. This cannot be null.
+     */
+    public Stream<Doctor> streamDoctors(){
+        return repository.streamAllDoctors();
+    }
+
+    /**
+     * @return The version of the list of all doctors, which changes whenever a doctor
+     *         is hired, changed or removed through any instance of this application.
+     *         It is read from memory, without querying the database.
+     */
+    public String getDoctorsVersion(){
+        return modifications.collectionVersion();
+    }
+
+    /**
+     * @param doctor A doctor.
+     * @return The version of the doctor as it was read, which changes whenever the
+     *         doctor is changed.
+     */
+    public String getDoctorVersion(final Doctor doctor){
+        return getDoctorVersion(doctor.getId(), doctor.getVersion());
+    }
+
+    /**
+     * @param empId The id of a doctor.
+     * @param version The value of the version column of the doctor.
+     * @return The version of the doctor, as {@link #getDoctorVersion(Doctor)} returns it.
+     */
+    public String getDoctorVersion(final long empId, final long version){
+        return modifications.entityVersion(empId, version);
+    }
+
+    /**
+     * Allow a user to get a single {@link Doctor}. Doctors are served from a cache
+     * when possible, so the returned doctor is detached and must not be changed.
      * @param empId The id of the doctor to get.
      * @return The doctor.
      */
     public Doctor getDoctor(final long empId){
-        return find(empId);
+        return cache.get(empId, this::find);
+    }
+
+    /**
+     * Allow a user to get a single {@link Doctor} that is at least as recent as a
+     * version read before, which a cached copy that is older is read again for.
+     * @param empId The id of the doctor to get.
+     * @param version The value of the version column of the doctor, as returned by
+     *                {@link #readDoctorVersion}.
+     * @return The doctor.
+     */
+    public Doctor getDoctor(final long empId, final long version){
+        final Doctor doctor = getDoctor(empId);
+        if (doctor.getVersion() >= version){
+            return doctor;
+        }
+        cache.invalidate(empId);
+        return getDoctor(empId);
+    }
+
+    /**
+     * Read the version column of a {@link Doctor} without loading the doctor, so that
+     * a client that already has it can be answered without loading it either.
+     * @param empId The id of the doctor.
+     * @return The value of the version column of the doctor.
+     * @throws InvalidIdException If no doctor has the given id.
+     */
+    public long readDoctorVersion(final long empId){
+        return repository.findVersionById(empId).orElseThrow(() -> new InvalidIdException(
+                "Doctor with id " + empId + " not found."));
+    }
+
+    /**
+     * Allow a user to get several {@link Doctor} from the database in one query.
+     * @param empIds The ids of the doctors to get.
+     * @return an unmodifiable list of the doctors that exist, in no particular order.
+     *         This cannot be null.
+     */
+    public List<Doctor> getDoctors(final Collection<Long> empIds){
+        return Collections.unmodifiableList(repository.findAllById(empIds));
+    }
+
+    /**
+     * Getter for the summaries of several {@link Doctor}, read in a single query.
+     * @param empIds The ids of the doctors to get.
+     * @return an unmodifiable list of the summaries of the doctors that exist, in no
+     *         particular order. This cannot be null.
+     */
+    public List<DoctorSummary> getDoctorSummaries(final Collection<Long> empIds){
+        return Collections.unmodifiableList(repository.findDoctorSummariesById(empIds));
     }
 
     /**
@@ -46,8 +148,9 @@ public final class DoctorService {
      * @param firstName The doctors first name.
      * @param lastName The doctors last name.
      * @param phone The doctors phone number.
+     * @return The new doctor, with their generated employee id.
      */
-    public HttpStatus hire(final String firstName, final String lastName, final String phone){
+    public Doctor hire(final String firstName, final String lastName, final String phone){
         //make sure phone number is the correct length
         if (phone.length() != 10){
             throw new FailedRequestException("The phone number you enter must be 10 digits long. Please try again.");
@@ -59,14 +162,16 @@ public final class DoctorService {
         doctor.setLastName(lastName);
         doctor.setPhone(phone);
 
-        repository.save(doctor);
-
-        //make sure doctor was added, throw exception if not
-        if (repository.findDoctorByPhone(phone).isPresent()) {
-            return HttpStatus.OK;
+        //insert the doctor, the database rejects the row if it is not valid
+        try{
+            final Doctor hired = repository.save(doctor);
+            modifications.changed();
+            return hired;
+        }
+        catch (DataIntegrityViolationException e){
+            throw refused(0L, phone, "The new doctor could not be added to the database. Please ensure all information" +
+                    " is correct and try again");
         }
-        throw new FailedRequestException("The new doctor could not be added to the database. Please ensure all information" +
-                " is correct and try again");
     }
 
     /**
@@ -74,83 +179,65 @@ public final class DoctorService {
      * @param empId The doctors employee id.
      */
     public HttpStatus remove(final long empId){
-        //check to make sure the doctor exists, will throw an exception if not
-        find(empId);
-        //delete the doctor from the database
-        repository.deleteById(empId);
-
+        //delete the doctor in a single statement, the number of rows deleted tells us if they existed
+        final int deleted;
         try{
-            //try to find the doctor in the database, it should not be there
-            repository.findDoctorByEmpId(empId);
+            deleted = repository.deleteDoctorByEmpId(empId);
         }
-        //catch the exception that should be thrown
-        catch (InvalidIdException e){
-            //since the doctor was not there, return OK
-            return HttpStatus.OK;
+        //the database refuses to delete a doctor who still has patients or appointments
+        catch (DataIntegrityViolationException e){
+            throw new FailedRequestException("The doctor could not be deleted from the database because they still" +
+                    " have patients or appointments. Please reassign them and try again.");
         }
-        throw new FailedRequestException("The doctor could not be deleted from the database." +
-                " Please make sure all information is correct and try again.");
-    }
 
-    /**
-     * Allow a user to change a {@link Doctor} first name.
-     * @param empId The doctors employee id.
-     * @param firstName The doctors new first name.
-     */
-    public void changeFirstName(final long empId, final String firstName) {
-        //check to make sure the doctor exists, will throw an exception if not
-        final Doctor doctor = find(empId);
-        //change the doctors first name
-        doctor.setFirstName(firstName);
-
-        //make sure the update worked before returning OK
-        if (doctor.getFirstName().equals(firstName)){
-            return;
+        if (deleted == 0){
+            throw new InvalidIdException("Doctor with id " + empId + " not found.");
         }
-        throw new FailedRequestException("The doctor's first name could not be updated. " +
-                "Please make sure all information is correct and try again.");
+        evict(empId);
+        return HttpStatus.OK;
     }
 
     /**
-     * Allow a user to change a {@link Doctor} last name.
+     * Allow a user to change any of a {@link Doctor}'s details at once. Every supplied
+     * detail is checked first and then only the supplied columns are changed, in a
+     * single statement, so either every change is made or none is.
      * @param empId The doctors employee id.
-     * @param lastName The doctors new last name.
+     * @param firstName The doctors new first name, or null to keep it.
+     * @param lastName The doctors new last name, or null to keep it.
+     * @param phone The doctors new phone number, or null to keep it.
+     * @return The doctor as the update left it, with its new version.
      */
-    public void changeLastName(final long empId, final String lastName){
-        //check to make sure the doctor exists, will throw an exception if not
-        final Doctor doctor = find(empId);
-        //change the doctors last name
-        doctor.setLastName(lastName);
-
-        //make sure the update worked before returning OK
-        if (doctor.getLastName().equals(lastName)){
-            return;
+    public Doctor update(final long empId, final String firstName, final String lastName, final String phone){
+        //check every supplied detail before changing anything
+        if (firstName != null && firstName.isEmpty()){
+            throw new FailedRequestException("The doctor's first name cannot be empty. Please try again.");
         }
-        throw new FailedRequestException("The doctor's last name could not be updated. " +
-                "Please make sure all information is correct and try again.");
-    }
-
-    /**
-     * Allow a user to change a {@link Doctor} phone number.
-     * @param empId The doctors employee id.
-     * @param phone The doctors new phone number.
-     */
-    public void changePhone(final long empId, final String phone){
-        //make sure the new phone number is the correct length
-        if (phone.length() != 10){
+        if (lastName != null && lastName.isEmpty()){
+            throw new FailedRequestException("The doctor's last name cannot be empty. Please try again.");
+        }
+        if (phone != null && phone.length() != 10){
             throw new FailedRequestException("The phone number you enter must be 10 digits long. Please try again.");
         }
 
         //check to make sure the doctor exists, will throw an exception if not
-        final Doctor doctor = find(empId);
-        //change the doctors phone
-        doctor.setPhone(phone);
+        final Doctor current = getDoctor(empId);
+        if (firstName == null && lastName == null && phone == null){
+            return current;
+        }
 
-        if (doctor.getPhone().equals(phone)) {
-            return;
+        //change only the supplied columns
+        final Doctor doctor;
+        try{
+            doctor = repository.updateDoctor(empId, firstName, lastName, phone).orElseThrow(
+                    () -> new InvalidIdException("Doctor with id " + empId + " not found."));
         }
-        throw new FailedRequestException("The doctor's phone number could not be updated. " +
-                "Please make sure all information is correct and try again.");
+        //the database refuses the change if another doctor already has the new phone number
+        catch (DataIntegrityViolationException e){
+            throw refused(empId, phone, "The doctor could not be updated." +
+                    " Please make sure all information is correct and try again.");
+        }
+        evict(empId);
+        return doctor;
     }
 
     // --------------------------------------------------------------------
@@ -161,9 +248,35 @@ public final class DoctorService {
                 "Doctor with id " + empId + " not found."));
     }
 
+    //helper method to explain a write the database refused, by naming the other doctor who already has the phone
+    //number if that is why. This only queries the database once a write has failed
+    private FailedRequestException refused(final long id, final String phone, final String message){
+        final Optional<Doctor> holder = phone == null ? Optional.empty()
+                : repository.findDoctorByPhone(phone).filter(other -> other.getId() != id);
+        if (holder.isPresent()){
+            return new FailedRequestException("The phone number " + phone + " already belongs to doctor "
+                    + holder.get().getId() + ". Please try again with another number.");
+        }
+        return new FailedRequestException(message);
+    }
+
+    //helper method to drop a changed or removed doctor from the caches and change its version
+    private void evict(final long empId){
+        cache.invalidate(empId);
+        modifications.changed();
+        //cached patients hold a copy of their family doctor, which may be this one
+        patientCache.invalidateAll();
+    }
+
     // --------------------------------------------------------------------
     // :: Private Members
     //create a permanent reference to the doctor repository
     private final DoctorRepository repository;
+    //the cache of doctors by employee id
+    private final EntityCache<Long, Doctor> cache;
+    //the cache of patients, which hold a copy of their family doctor
+    private final EntityCache<Long, Patient> patientCache;
+    //counts the changes made to doctors, which clients compare their copies against
+    private final ModificationCounter<Doctor> modifications;
 }
 
@@ -0,0 +1,37 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.doctor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The columns of a {@link Doctor} returned to clients, read by a projection query
+ * without loading the doctor entity.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class DoctorSummary {
+    /**
+     * The doctors employee id.
+     */
+    private final long id;
+
+    /**
+     * The doctors first name.
+     */
+    private final String firstName;
+
+    /**
+     * The doctors last name.
+     */
+    private final String lastName;
+
+    /**
+     * The doctors phone number.
+     */
+    private final String phone;
+}
@@ -0,0 +1,27 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.doctor;
+
+import java.util.Optional;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Partial updates of a {@link Doctor}, mixed into the {@link DoctorRepository}.
+ */
+public interface DoctorUpdateRepository {
+    /**
+     * Update the supplied columns of a doctor in a single UPDATE statement. Columns
+     * whose new value is null are left unchanged and are not part of the statement.
+     * At least one new value must be supplied.
+     * @param id The employee id of the doctor to update.
+     * @param firstName The doctors new first name, or null to keep it.
+     * @param lastName The doctors new last name, or null to keep it.
+     * @param phone The doctors new phone number, or null to keep it.
+     * @return The doctor as the statement left it, read again in the same transaction so
+     *         that no later change is mixed in, or empty if no doctor has the given id.
+     */
+    @Transactional
+    Optional<Doctor> updateDoctor(final long id, final String firstName, final String lastName, final String phone);
+}
@@ -0,0 +1,63 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.doctor;
+
+import static org.hibernate.cfg.AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE;
+
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Builds the UPDATE statements of the {@link DoctorUpdateRepository} from the
+ * columns that are actually changed.
+ */
+@RequiredArgsConstructor
+class DoctorUpdateRepositoryImpl implements DoctorUpdateRepository {
+
+    @Override
+    public Optional<Doctor> updateDoctor(final long id, final String firstName, final String lastName, final String phone) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaUpdate<Doctor> update = builder.createCriteriaUpdate(Doctor.class);
+        final Root<Doctor> doctor = update.from(Doctor.class);
+
+        //only set the columns that were supplied
+        if (firstName != null){
+            update.set(doctor.<String>get("firstName"), firstName);
+        }
+        if (lastName != null){
+            update.set(doctor.<String>get("lastName"), lastName);
+        }
+        if (phone != null){
+            update.set(doctor.<String>get("phone"), phone);
+        }
+        if (firstName == null && lastName == null && phone == null){
+            throw new IllegalArgumentException("At least one column of doctor " + id + " must be updated.");
+        }
+
+        //the update bypasses the persistence context, so increment the version here
+        update.set(doctor.<Long>get("version"), builder.sum(doctor.<Long>get("version"), 1L));
+
+        update.where(builder.equal(doctor.get("id"), id));
+        if (entityManager.createQuery(update).executeUpdate() == 0){
+            return Optional.empty();
+        }
+
+        //nothing in this transaction has loaded the doctor before the statement, so this reads the row it wrote.
+        //the second-level cache is only cleared of the old copy once the transaction ends, so it is bypassed
+        return Optional.ofNullable(entityManager.find(Doctor.class, id,
+                Map.of(JPA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final EntityManager entityManager;
+}
@@ -0,0 +1,138 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Writes the rows of a database query to an HTTP response as newline-delimited JSON
+ * (one JSON object per line) while they are being read. The query is consumed
+ * inside a read-only transaction so the JDBC driver can use a forward-only cursor,
+ * and the persistence context is cleared as rows are written, so an export never
+ * holds more than one fetch of rows in memory regardless of the table size.
+ * </p>
+ */
+@Slf4j
+@Component
+public final class NdjsonExporter
+{
+    /**
+     * The media type of a newline-delimited JSON response.
+     */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * @param transactionManager The transaction manager used to open the read-only
+     *                           transaction the rows are streamed in.
+     * @param entityManager The entity manager that is cleared as rows are written.
+     * @param objectMapper The mapper used to write each row as JSON.
+     */
+    public NdjsonExporter(
+        final PlatformTransactionManager transactionManager,
+        final EntityManager entityManager,
+        final ObjectMapper objectMapper)
+    {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.writer = objectMapper.writer();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Create a response that streams every row of a query as newline-delimited JSON.
+     * @param query Supplies the stream of rows to export. The stream is opened and
+     *              closed by this exporter. This cannot be null.
+     * @param mapper Maps each row to the object written as one line of JSON. This
+     *               cannot be null.
+     * @param <T> The type of the rows returned by the query.
+     * @return The response streaming the rows. This cannot be null.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> export(
+        final Supplier<Stream<T>> query,
+        final Function<? super T, ?> mapper)
+    {
+        final StreamingResponseBody body = out -> {
+            try
+            {
+                transactionTemplate.executeWithoutResult(status -> write(query, mapper, out));
+            }
+            catch (final UncheckedIOException e)
+            {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(body);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private <T> void write(
+        final Supplier<Stream<T>> query,
+        final Function<? super T, ?> mapper,
+        final OutputStream out)
+    {
+        final OutputStream buffered = new BufferedOutputStream(out);
+        long count = 0;
+
+        try (Stream<T> rows = query.get())
+        {
+            for (final T row : (Iterable<T>) rows::iterator)
+            {
+                buffered.write(writer.writeValueAsBytes(mapper.apply(row)));
+                buffered.write('\n');
+
+                //drop the rows already written so the persistence context does not grow
+                if (++count % CLEAR_INTERVAL == 0)
+                {
+                    entityManager.clear();
+                }
+            }
+            buffered.flush();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Exported {} row(s).", count);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+
+    // The number of rows written between two clears of the persistence context.
+    // This matches the JDBC fetch size used by the export queries.
+    private static final int CLEAR_INTERVAL = 1000;
+}
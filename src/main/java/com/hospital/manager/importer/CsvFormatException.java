@@ -0,0 +1,33 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * Thrown by a {@link CsvReader} when the file is not valid CSV. The records after
+ * the invalid one cannot be told apart reliably, so reading stops there.
+ */
+@Getter
+final class CsvFormatException extends IOException
+{
+    private static final long serialVersionUID = 1;
+
+    /**
+     * @param line The line of the file the invalid record starts on.
+     * @param message Why the record is not valid.
+     */
+    CsvFormatException(final long line, final String message)
+    {
+        super(message);
+        this.line = line;
+    }
+
+    /**
+     * The line of the file the invalid record starts on, counting from 1.
+     */
+    private final long line;
+}
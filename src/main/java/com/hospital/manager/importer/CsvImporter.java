@@ -0,0 +1,495 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hospital.manager.cache.ModificationCounter;
+import com.hospital.manager.configuration.PooledSequenceGenerator;
+import com.hospital.manager.doctor.Doctor;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+import com.hospital.manager.importer.ImportReport.RowError;
+import com.hospital.manager.patient.Patient;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Imports doctors and patients from CSV files (see {@link CsvReader}) far faster than
+ * adding them one request at a time. The file is read one row at a time and the
+ * rows are inserted with plain JDBC in batches of {@value #BATCH_SIZE}, each in its
+ * own transaction, so a file of any size is imported in constant memory.
+ * </p>
+ *
+ * <p>
+ * The first row of a file names its columns, in any order:
+ * </p>
+ * <ul>
+ *     <li>Doctors: firstName, lastName and phone.</li>
+ *     <li>Patients: firstName, lastName, phone, address (optional) and doctorId.</li>
+ * </ul>
+ *
+ * <p>
+ * Each row is checked like a doctor or patient added through the REST endpoints:
+ * the phone number must be 10 digits long and not used by another doctor or patient,
+ * and the doctor of a patient must exist. A row that is not valid is left out and
+ * reported with its line, the other rows are still imported. Ids are reserved from
+ * the same database sequences as the ones of the entities, so an import can run
+ * while the application is in use.
+ * </p>
+ */
+@Slf4j
+@Component
+public final class CsvImporter
+{
+    /**
+     * The number of rows inserted by a single JDBC batch.
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    /**
+     * The most rejected rows listed in an {@link ImportReport}. Every rejected row is
+     * still counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * @param jdbc The template the rows are inserted with.
+     * @param transactionManager The transaction manager each batch is inserted in.
+     * @param entityManagerFactory The factory whose dialect gives the statement
+     *                             reserving ids, and whose query cache and cached
+     *                             patients of the doctors are cleared after an
+     *                             import.
+     * @param allocationSize The number of ids reserved from a sequence at a time,
+     *                       which is what the sequences are incremented by.
+     * @param doctorModifications Counts the doctors imported.
+     * @param patientModifications Counts the patients imported.
+     */
+    public CsvImporter(
+        final NamedParameterJdbcTemplate jdbc,
+        final PlatformTransactionManager transactionManager,
+        final EntityManagerFactory entityManagerFactory,
+        @Value("${spring.jpa.properties." + PooledSequenceGenerator.ALLOCATION_SIZE + ":"
+            + PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE + "}") final int allocationSize,
+        final ModificationCounter<Doctor> doctorModifications,
+        final ModificationCounter<Patient> patientModifications)
+    {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.allocationSize = allocationSize;
+        this.doctorModifications = doctorModifications;
+        this.patientModifications = patientModifications;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Import the doctors of a CSV file.
+     * @param in The stream of the file. This cannot be null. It is closed once read.
+     * @return What was imported and what was rejected. This cannot be null.
+     * @throws FailedRequestException If the file is empty or a column is missing.
+     * @throws IOException If the file could not be read.
+     */
+    public ImportReport importDoctors(final InputStream in) throws IOException
+    {
+        return load(in, RecordType.DOCTOR);
+    }
+
+    /**
+     * Import the patients of a CSV file.
+     * @param in The stream of the file. This cannot be null. It is closed once read.
+     * @return What was imported and what was rejected. This cannot be null.
+     * @throws FailedRequestException If the file is empty or a column is missing.
+     * @throws IOException If the file could not be read.
+     */
+    public ImportReport importPatients(final InputStream in) throws IOException
+    {
+        return load(in, RecordType.PATIENT);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private ImportReport load(final InputStream in, final RecordType type) throws IOException
+    {
+        final Progress progress = new Progress();
+        final List<Row> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (CsvReader reader = new CsvReader(in))
+        {
+            final int[] positions = locateColumns(reader.next(), type);
+            List<String> fields;
+
+            try
+            {
+                while ((fields = reader.next()) != null)
+                {
+                    final Row row = parse(reader.getLine(), fields, positions, type, progress);
+
+                    if (row != null)
+                    {
+                        batch.add(row);
+                    }
+                    if (batch.size() == BATCH_SIZE)
+                    {
+                        insert(batch, type, progress);
+                        batch.clear();
+                    }
+                }
+            }
+            //the rows after one that is not valid CSV cannot be told apart reliably
+            catch (final CsvFormatException e)
+            {
+                progress.reject(e.getLine(), e.getMessage());
+                progress.complete = false;
+            }
+            insert(batch, type, progress);
+        }
+
+        //the rows were inserted behind Hibernate's back, so cached query results (e.g.
+        //a phone number that was not found) and the cached patients of the doctors
+        //may be out of date
+        sessionFactory.getCache().evictQueryRegions();
+        if (type == RecordType.PATIENT)
+        {
+            sessionFactory.getCache().evictCollectionData(Doctor.class.getName() + ".patients");
+        }
+
+        log.info("Imported {} {}(s) and rejected {}.", progress.imported, type.table, progress.rejected);
+
+        progress.errors.sort(Comparator.comparingLong(RowError::getLine));
+        return new ImportReport(progress.imported, progress.rejected, List.copyOf(progress.errors),
+            progress.complete);
+    }
+
+    // The position of each column of the record type in the rows of the file, or -1
+    // for an optional column the file does not have.
+    private static int[] locateColumns(final List<String> header, final RecordType type)
+    {
+        if (header == null)
+        {
+            throw new FailedRequestException("The file is empty. Please supply a header row naming the columns"
+                + " and try again.");
+        }
+
+        final int[] positions = new int[type.columns.length];
+
+        for (int i = 0; i < type.columns.length; i++)
+        {
+            positions[i] = -1;
+
+            for (int j = 0; j < header.size(); j++)
+            {
+                if (header.get(j).trim().equalsIgnoreCase(type.columns[i].header))
+                {
+                    positions[i] = j;
+                }
+            }
+
+            if (positions[i] == -1 && type.columns[i].required)
+            {
+                throw new FailedRequestException("The file has no " + type.columns[i].header + " column. Please"
+                    + " supply a header row naming the columns and try again.");
+            }
+        }
+        return positions;
+    }
+
+    // The row of the file as the values to insert, or null if it is rejected.
+    private static Row parse(
+        final long line,
+        final List<String> fields,
+        final int[] positions,
+        final RecordType type,
+        final Progress progress)
+    {
+        final Object[] values = new Object[type.columns.length + 1];
+
+        for (int i = 0; i < type.columns.length; i++)
+        {
+            final Column column = type.columns[i];
+            final String value = positions[i] >= 0 && positions[i] < fields.size()
+                ? fields.get(positions[i]).trim()
+                : "";
+
+            if (value.isEmpty())
+            {
+                if (column.required)
+                {
+                    progress.reject(line, "The " + column.header + " is missing.");
+                    return null;
+                }
+                continue;
+            }
+
+            switch (column)
+            {
+                case PHONE:
+                    if (value.length() != 10)
+                    {
+                        progress.reject(line, "The phone number must be 10 digits long.");
+                        return null;
+                    }
+                    break;
+                case DOCTOR_ID:
+                    try
+                    {
+                        values[i + 1] = Long.valueOf(value);
+                    }
+                    catch (final NumberFormatException e)
+                    {
+                        progress.reject(line, "The doctor id " + value + " is not valid.");
+                        return null;
+                    }
+                    continue;
+                default:
+                    break;
+            }
+            values[i + 1] = value;
+        }
+        return new Row(line, values);
+    }
+
+    // Insert the rows of a batch, leaving out the ones the database would reject.
+    private void insert(final List<Row> batch, final RecordType type, final Progress progress)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+
+        final int phone = type.indexOf(Column.PHONE);
+        final int doctorId = type.indexOf(Column.DOCTOR_ID);
+
+        final List<Object> phones = new ArrayList<>(batch.size());
+        final List<Object> doctorIds = new ArrayList<>(batch.size());
+        for (final Row row : batch)
+        {
+            phones.add(row.values[phone]);
+            if (doctorId > 0)
+            {
+                doctorIds.add(row.values[doctorId]);
+            }
+        }
+
+        //the phone numbers already used and the doctors that exist, one query each
+        final Set<Object> usedPhones = new HashSet<>(jdbc.queryForList(
+            "SELECT phone FROM " + type.table + " WHERE phone IN (:phones)", Map.of("phones", phones), String.class));
+        final Set<Object> doctors = doctorId > 0
+            ? new HashSet<>(jdbc.queryForList(
+                "SELECT id FROM doctor WHERE id IN (:ids)", Map.of("ids", doctorIds), Long.class))
+            : Set.of();
+
+        final List<Object[]> accepted = new ArrayList<>(batch.size());
+        final List<Row> acceptedRows = new ArrayList<>(batch.size());
+        for (final Row row : batch)
+        {
+            if (doctorId > 0 && !doctors.contains(row.values[doctorId]))
+            {
+                progress.reject(row.line, "Doctor with id " + row.values[doctorId] + " not found.");
+            }
+            else if (!usedPhones.add(row.values[phone]))
+            {
+                progress.reject(row.line, "The phone number " + row.values[phone] + " is already used by another "
+                    + type.table + ".");
+            }
+            else
+            {
+                row.values[0] = nextId(type, progress);
+                accepted.add(row.values);
+                acceptedRows.add(row);
+            }
+        }
+
+        try
+        {
+            transactionTemplate.executeWithoutResult(
+                status -> jdbc.getJdbcOperations().batchUpdate(type.insert, accepted));
+            progress.imported += accepted.size();
+            changed(type);
+        }
+        //a row conflicts with a change made since the checks above, so find it by
+        //inserting the rows one at a time
+        catch (final DataAccessException e)
+        {
+            log.warn("A batch of {}(s) was rejected, inserting its rows one at a time.", type.table, e);
+
+            final long imported = progress.imported;
+            for (final Row row : acceptedRows)
+            {
+                try
+                {
+                    transactionTemplate.executeWithoutResult(
+                        status -> jdbc.getJdbcOperations().update(type.insert, row.values));
+                    progress.imported++;
+                }
+                catch (final DataAccessException rowException)
+                {
+                    progress.reject(row.line, "The " + type.table + " could not be added to the database. Please"
+                        + " ensure all information is correct.");
+                }
+            }
+            if (progress.imported > imported)
+            {
+                changed(type);
+            }
+        }
+    }
+
+    // Count the inserted rows of a batch as a change, so clients read the doctors or
+    // patients again.
+    private void changed(final RecordType type)
+    {
+        (type == RecordType.DOCTOR ? doctorModifications : patientModifications).changed();
+    }
+
+    // The next id of the record type, reserving a new block of ids from the
+    // database sequence once the current one is used up.
+    private long nextId(final RecordType type, final Progress progress)
+    {
+        if (progress.nextId == progress.lastId)
+        {
+            final Long first = jdbc.getJdbcOperations().queryForObject(
+                dialect.getSequenceNextValString(type.sequence), Long.class);
+
+            progress.nextId = first;
+            progress.lastId = first + allocationSize;
+        }
+        return progress.nextId++;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // A column of the file and of the table it is imported into.
+    private enum Column
+    {
+        FIRST_NAME("firstName", "first_name", true),
+        LAST_NAME("lastName", "last_name", true),
+        PHONE("phone", "phone", true),
+        ADDRESS("address", "address", false),
+        DOCTOR_ID("doctorId", "doctor_id", true);
+
+        Column(final String header, final String name, final boolean required)
+        {
+            this.header = header;
+            this.name = name;
+            this.required = required;
+        }
+
+        private final String header;
+        private final String name;
+        private final boolean required;
+    }
+
+    // The kinds of records that can be imported.
+    private enum RecordType
+    {
+        DOCTOR("doctor", Column.FIRST_NAME, Column.LAST_NAME, Column.PHONE),
+        PATIENT("patient", Column.FIRST_NAME, Column.LAST_NAME, Column.PHONE, Column.ADDRESS, Column.DOCTOR_ID);
+
+        RecordType(final String table, final Column... columns)
+        {
+            this.table = table;
+            this.sequence = table + "_sequence";
+            this.columns = columns;
+
+            final StringBuilder names = new StringBuilder("id");
+            final StringBuilder parameters = new StringBuilder("?");
+            for (final Column column : columns)
+            {
+                names.append(", ").append(column.name);
+                parameters.append(", ?");
+            }
+            this.insert = "INSERT INTO " + table + " (" + names + ", version) VALUES (" + parameters + ", 0)";
+        }
+
+        // The index of a column in the values of a row, or -1 if the record type
+        // does not have it. The id comes first.
+        int indexOf(final Column column)
+        {
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (columns[i] == column)
+                {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private final String table;
+        private final String sequence;
+        private final Column[] columns;
+        private final String insert;
+    }
+
+    // A row that passed the checks that do not need the database.
+    private static final class Row
+    {
+        Row(final long line, final Object[] values)
+        {
+            this.line = line;
+            this.values = values;
+        }
+
+        private final long line;
+
+        // The id followed by the value of each column of the record type.
+        private final Object[] values;
+    }
+
+    // What has been imported and rejected so far, and the ids reserved for the
+    // rows still to come.
+    private static final class Progress
+    {
+        void reject(final long line, final String message)
+        {
+            if (errors.size() < MAX_REPORTED_ERRORS)
+            {
+                errors.add(new RowError(line, message));
+            }
+            rejected++;
+        }
+
+        private long imported;
+        private long rejected;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean complete = true;
+        private long nextId;
+        private long lastId;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactory sessionFactory;
+    private final Dialect dialect;
+    private final int allocationSize;
+    private final ModificationCounter<Doctor> doctorModifications;
+    private final ModificationCounter<Patient> patientModifications;
+}
@@ -0,0 +1,199 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Reads the records of a UTF-8 CSV file one at a time, so a file of any size is read
+ * in constant memory. Fields are separated by commas and records by line breaks
+ * (\n or \r\n). A field may be enclosed in double quotes to hold commas, line breaks
+ * or double quotes, which are then written twice ("").
+ * </p>
+ *
+ * <p>
+ * A reader must only be used by one thread at a time.
+ * </p>
+ */
+final class CsvReader implements Closeable
+{
+    /**
+     * The longest record accepted, in characters. A longer record is most likely a
+     * quote that is never closed, which would otherwise make the rest of the file a
+     * single field.
+     */
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    /**
+     * @param in The stream of the CSV file. This cannot be null. It is closed when
+     *           this reader is closed.
+     */
+    CsvReader(final InputStream in)
+    {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Package Interface
+
+    /**
+     * Read the next record, skipping empty lines.
+     * @return The fields of the record, or null at the end of the file.
+     * @throws CsvFormatException If the record is longer than
+     *                            {@value #MAX_RECORD_LENGTH} characters or its last
+     *                            quote is never closed.
+     * @throws IOException If the file could not be read.
+     */
+    List<String> next() throws IOException
+    {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        int c;
+
+        recordLine = line;
+
+        while ((c = read()) != -1)
+        {
+            if (++length > MAX_RECORD_LENGTH)
+            {
+                throw new CsvFormatException(recordLine, "The record is longer than " + MAX_RECORD_LENGTH
+                    + " characters. Please check that every quote is closed.");
+            }
+            if (c == '\n')
+            {
+                line++;
+            }
+
+            if (quoted)
+            {
+                if (c != '"')
+                {
+                    field.append((char) c);
+                }
+                else if (peek() == '"')
+                {
+                    field.append((char) read());
+                }
+                else
+                {
+                    quoted = false;
+                }
+            }
+            else if (c == '"')
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\n')
+            {
+                //an empty line is not a record
+                if (fields.isEmpty() && field.length() == 0)
+                {
+                    recordLine = line;
+                    length = 0;
+                    continue;
+                }
+                break;
+            }
+            else if (c != '\r' || peek() != '\n')
+            {
+                field.append((char) c);
+            }
+        }
+
+        if (quoted)
+        {
+            throw new CsvFormatException(recordLine, "The record has a quote that is never closed.");
+        }
+        if (c == -1 && fields.isEmpty() && field.length() == 0)
+        {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return The line of the file the last record read starts on, counting from 1.
+     */
+    long getLine()
+    {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private int read() throws IOException
+    {
+        final int c = peek();
+        if (c != -1)
+        {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException
+    {
+        if (position == limit)
+        {
+            limit = reader.read(buffer);
+            position = 0;
+
+            if (limit <= 0)
+            {
+                limit = 0;
+                return -1;
+            }
+
+            //skip the byte order mark some editors write at the start of the file
+            if (first && buffer[0] == '\uFEFF')
+            {
+                position = 1;
+                first = false;
+                return peek();
+            }
+            first = false;
+        }
+        return buffer[position];
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final Reader reader;
+
+    // The characters read ahead from the file, of which the ones in [position, limit)
+    // have not been consumed yet.
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean first = true;
+
+    // The line of the file being read, and the one the current record starts on.
+    private long line = 1;
+    private long recordLine = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+}
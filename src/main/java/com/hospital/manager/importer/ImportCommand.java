@@ -0,0 +1,103 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Imports CSV files from the command line (see {@link CsvImporter} for the columns)
+ * when the application is started with the {@value #DOCTORS} or {@value #PATIENTS}
+ * option. The doctors are imported first, so the patients can refer to them, and
+ * the application exits once the files are imported:
+ * </p>
+ *
+ * <pre>
+ * java -jar hospital-manager.jar --spring.main.web-application-type=none \
+ *     --import-doctors=doctors.csv --import-patients=patients.csv
+ * </pre>
+ *
+ * <p>
+ * The exit code is 0 if every row was imported and 1 otherwise. The rejected rows
+ * are logged.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public final class ImportCommand implements ApplicationRunner
+{
+    /**
+     * The option naming the CSV file of doctors to import.
+     */
+    public static final String DOCTORS = "import-doctors";
+
+    /**
+     * The option naming the CSV file of patients to import.
+     */
+    public static final String PATIENTS = "import-patients";
+
+    @Override
+    public void run(final ApplicationArguments arguments) throws IOException
+    {
+        if (!arguments.containsOption(DOCTORS) && !arguments.containsOption(PATIENTS))
+        {
+            return;
+        }
+
+        boolean rejected = false;
+        for (final String file : files(arguments, DOCTORS))
+        {
+            rejected |= report(file, importer.importDoctors(Files.newInputStream(Path.of(file))));
+        }
+        for (final String file : files(arguments, PATIENTS))
+        {
+            rejected |= report(file, importer.importPatients(Files.newInputStream(Path.of(file))));
+        }
+
+        final int exitCode = rejected ? 1 : 0;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private static List<String> files(final ApplicationArguments arguments, final String option)
+    {
+        return arguments.containsOption(option) ? arguments.getOptionValues(option) : List.of();
+    }
+
+    // Log the outcome of the import of a file, returning true if any row was rejected.
+    private static boolean report(final String file, final ImportReport report)
+    {
+        log.info("Imported {} row(s) of {} and rejected {}.", report.getImported(), file, report.getRejected());
+
+        for (final ImportReport.RowError error : report.getErrors())
+        {
+            log.warn("{} line {}: {}", file, error.getLine(), error.getMessage());
+        }
+        if (!report.isComplete())
+        {
+            log.warn("The rest of {} was not imported.", file);
+        }
+        return report.getRejected() > 0;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final CsvImporter importer;
+    private final ConfigurableApplicationContext context;
+}
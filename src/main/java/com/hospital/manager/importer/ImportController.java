@@ -0,0 +1,84 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Represents the REST endpoints that import doctors and patients in bulk from CSV
+ * files (see {@link CsvImporter} for the columns). The file is sent as the body of
+ * the request and imported while it is being received, for example:
+ * </p>
+ *
+ * <pre>
+ * curl -X POST -H "Content-Type: text/csv" --data-binary @patients.csv localhost:8080/import/patients
+ * </pre>
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Api(tags = "import")
+@RequestMapping(path = "import")
+public final class ImportController
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Allow a client to import the doctors of a CSV file.
+     * @param body The CSV file.
+     * @return The number of doctors imported and the rows that were rejected.
+     * @throws IOException If the file could not be read.
+     */
+    @PostMapping(path = "doctors", consumes = CSV)
+    @ApiOperation("Imports the doctors of a CSV file")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The file was imported. Rejected rows are listed in the report"),
+        @ApiResponse(code = 400, message = "If the file is empty or a column is missing")
+    })
+    public ImportReport importDoctors(final InputStream body) throws IOException
+    {
+        log.info("Importing doctors.");
+
+        return importer.importDoctors(body);
+    }
+
+    /**
+     * Allow a client to import the patients of a CSV file. Their doctors must exist.
+     * @param body The CSV file.
+     * @return The number of patients imported and the rows that were rejected.
+     * @throws IOException If the file could not be read.
+     */
+    @PostMapping(path = "patients", consumes = CSV)
+    @ApiOperation("Imports the patients of a CSV file")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The file was imported. Rejected rows are listed in the report"),
+        @ApiResponse(code = 400, message = "If the file is empty or a column is missing")
+    })
+    public ImportReport importPatients(final InputStream body) throws IOException
+    {
+        log.info("Importing patients.");
+
+        return importer.importPatients(body);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final CsvImporter importer;
+
+    private static final String CSV = "text/csv";
+}
@@ -0,0 +1,61 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.importer;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The outcome of a CSV import (see {@link CsvImporter}).
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class ImportReport
+{
+    /**
+     * One rejected row of the file.
+     */
+    @Getter
+    @ToString
+    @RequiredArgsConstructor
+    public static final class RowError
+    {
+        /**
+         * The line of the file the row starts on, counting from 1 (the header).
+         */
+        private final long line;
+
+        /**
+         * Why the row was rejected.
+         */
+        private final String message;
+    }
+
+    /**
+     * The number of rows inserted.
+     */
+    private final long imported;
+
+    /**
+     * The number of rows rejected.
+     */
+    private final long rejected;
+
+    /**
+     * The rejected rows, ordered by line. At most
+     * {@value CsvImporter#MAX_REPORTED_ERRORS} rows are listed. This cannot be null.
+     */
+    @ToString.Exclude
+    private final List<RowError> errors;
+
+    /**
+     * True if every row of the file was read, false if the import stopped at a row
+     * that is not valid CSV (which is the last of the errors).
+     */
+    private final boolean complete;
+}
@@ -0,0 +1,120 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.lookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+/**
+ * <p>
+ * Looks up several records by id with a single query, for clients that would
+ * otherwise request them one at a time. The records are returned in the order their
+ * ids were requested, and the ids without a record are reported instead of failing
+ * the whole request.
+ * </p>
+ */
+public final class BatchLookup
+{
+    /**
+     * The most ids a single lookup accepts. This keeps the IN list of the query well
+     * within the limits of the databases.
+     */
+    public static final int MAX_IDS = 1000;
+
+    /**
+     * Look up the records with the given ids.
+     * @param ids The ids of the records separated by commas (e.g. "3,1,2"), in the
+     *            order they should be returned. An id that is requested more than once
+     *            is only returned once, at its first position.
+     * @param finder Finds the records with the given ids in a single query, in any
+     *               order, leaving out the ids without a record.
+     * @param idOf Gets the id of a record returned by the finder.
+     * @param <T> The type of the records.
+     * @return The records found and the ids that were not. This cannot be null.
+     * @throws FailedRequestException If an id is not a number, or no ids or more than
+     *                                {@value #MAX_IDS} are requested.
+     */
+    public static <T> LookupResult<T> find(
+        final String ids,
+        final Function<Collection<Long>, List<T>> finder,
+        final ToLongFunction<T> idOf)
+    {
+        final Set<Long> distinctIds = parse(ids);
+
+        final Map<Long, T> found = new HashMap<>();
+        for (final T record : finder.apply(distinctIds))
+        {
+            found.put(idOf.applyAsLong(record), record);
+        }
+
+        final List<T> results = new ArrayList<>(found.size());
+        final List<Long> missingIds = new ArrayList<>();
+
+        for (final Long id : distinctIds)
+        {
+            final T record = found.get(id);
+
+            if (record != null)
+            {
+                results.add(record);
+            }
+            else
+            {
+                missingIds.add(id);
+            }
+        }
+        return new LookupResult<>(Collections.unmodifiableList(results), Collections.unmodifiableList(missingIds));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // The distinct ids in the order they were supplied, ignoring empty entries.
+    private static Set<Long> parse(final String ids)
+    {
+        final Set<Long> distinctIds = new LinkedHashSet<>();
+
+        if (ids != null)
+        {
+            for (final String id : ids.split(","))
+            {
+                if (id.isBlank())
+                {
+                    continue;
+                }
+
+                try
+                {
+                    distinctIds.add(Long.valueOf(id.trim()));
+                }
+                catch (final NumberFormatException e)
+                {
+                    throw new FailedRequestException("The id " + id.trim() + " is not valid. Please enter the ids"
+                        + " as numbers separated by commas and try again.");
+                }
+            }
+        }
+
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_IDS)
+        {
+            throw new FailedRequestException("Between 1 and " + MAX_IDS + " ids must be supplied. Please try again.");
+        }
+        return distinctIds;
+    }
+
+    private BatchLookup()
+    {
+        // This class only has static methods.
+    }
+}
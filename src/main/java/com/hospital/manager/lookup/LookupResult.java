@@ -0,0 +1,31 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.lookup;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The result of looking up several records by id in one call (see {@link BatchLookup}).
+ * @param <T> The type of the records found.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class LookupResult<T>
+{
+    /**
+     * The records found, in the order their ids were requested. This cannot be null.
+     */
+    private final List<T> results;
+
+    /**
+     * The requested ids that no record has, in the order they were requested. This
+     * cannot be null.
+     */
+    private final List<Long> missingIds;
+}
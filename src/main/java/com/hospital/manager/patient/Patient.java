@@ -9,29 +9,50 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
-import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This class represents patients in the hospital management system.
  * Each patient will have a ssn, family doctor, first name, last name, phone and address.
+ * Patients are kept in the second-level cache when it is enabled.
+ * No two patients have the same phone number.
  */
 @Entity
+@Table(
+    indexes = @Index(name = "patient_doctor_idx", columnList = "doctor_id"),
+    uniqueConstraints = @UniqueConstraint(name = "patient_phone_key", columnNames = "phone"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "patient")
 @Getter
 @Setter
 @ToString
 @NoArgsConstructor
 public final class Patient {
     @Id
-    @SequenceGenerator(name = "patient_sequence", allocationSize = 1)
+    @GenericGenerator(
+        name = "patient_sequence",
+        strategy = "com.hospital.manager.configuration.PooledSequenceGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "patient_sequence"))
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_sequence")
     private long id;
 
@@ -43,6 +64,14 @@ public final class Patient {
     @ManyToOne
     private Doctor doctor;
 
-    @OneToMany
+    //checked and incremented on every update, including the partial ones of the PatientUpdateRepository
+    @Version
+    private long version;
+
+    //the inverse side of Appointment.patient, read from the appointment table on first access
+    //for up to 50 loaded patients at once
+    @OneToMany(mappedBy = "patient", fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @ToString.Exclude
     private List<Appointment> appointments = new ArrayList<>();
 }
\ No newline at end of file
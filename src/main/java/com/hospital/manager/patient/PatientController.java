@@ -4,11 +4,12 @@
 package com.hospital.manager.patient;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.hospital.manager.appointment.Appointment;
-import com.hospital.manager.doctor.Doctor;
-
+import com.hospital.manager.cache.ConditionalResponses;
 import com.hospital.manager.exception.CustomException.FailedRequestException;
 import com.hospital.manager.exception.CustomException.NotFoundException;
+import com.hospital.manager.export.NdjsonExporter;
+import com.hospital.manager.lookup.BatchLookup;
+import com.hospital.manager.lookup.LookupResult;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -22,6 +23,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -30,6 +32,8 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -53,38 +57,60 @@ public final class PatientController {
     /**
      * Allow a client to get an {@link Patient} or a list of patients.
      * @param payload The payload containing the information about the patient to return.
-     * @return The patient(s).
+     * @param request The request, whose If-None-Match header may hold the version the client already has.
+     * @return The patient(s), with their version as the ETag.
      */
     @GetMapping(path = "get")
     @ApiOperation("Retrieves a single patient or a list of patients")
     @ApiResponses({
             @ApiResponse(code = 200, message = "The patient(s) were retrieved successfully"),
+            @ApiResponse(code = 304, message = "If the patient(s) did not change since the version in If-None-Match"),
+            @ApiResponse(code = 400, message = "If the ssn does not belong to any patient. This never carries an ETag"),
             @ApiResponse(code = 404,message = "If no patient(s) correspond to the criteria supplied")
     })
-    public List<PatientResponsePayload> get (RetrievalRequestPayload payload){
+    public ResponseEntity<List<PatientResponsePayload>> get (RetrievalRequestPayload payload, WebRequest request){
         log.info("Attempting to find patient pertaining to request={}",payload.getId());
 
         //if no id is supplied return a list of all patients
         if (payload.getId() == null){
+            //answer 304 Not Modified without reading the patients if the client already has the latest version.
+            //the version is read first, so a change made while the patients are read makes it out of date
+            final String version = service.getPatientsVersion();
+            if (ConditionalResponses.isNotModified(request, version)){
+                return ConditionalResponses.notModified(version);
+            }
+
             final List<PatientResponsePayload> results = new ArrayList<>();
-            final List<Patient> patients = service.getPatients();
+            final List<PatientSummary> patients = service.getPatientSummaries();
 
             log.info("Found {} results, returning them",patients.size());
 
             //add the patients to a list as PatientResponsePayloads
-            for (Patient patient:patients) {
+            for (PatientSummary patient:patients) {
                 results.add(new PatientResponsePayload(patient));
             }
-            return results;
+            return ConditionalResponses.ok(results, version);
+        }
+        //answer 304 Not Modified from the version of the patient alone, so the patient and its associations
+        //are only loaded when the client does not have them yet. This fails if there is no such patient
+        final long current = service.readPatientVersion(payload.getId());
+        final String known = service.getPatientVersion(payload.getId(), current);
+        if (ConditionalResponses.isNotModified(request, known)){
+            return ConditionalResponses.notModified(known);
         }
-        //get the patient with supplied id and return as item in a list of PatientResponsePayload
-        final Patient patient = service.getPatient(payload.getId());
 
-        if (patient != null){
-            log.info("returning patient={}",patient);
+        //get the patient with supplied id, at least as recent as that version, and return as item in a list of
+        //PatientResponsePayload
+        final Patient patient = service.getPatient(payload.getId(), current);
 
+        if (patient != null){
+            //labelled with the version of the patient that is returned
+            final String version = service.getPatientVersion(patient);
             final PatientResponsePayload results = new PatientResponsePayload(patient);
-            return Collections.unmodifiableList(List.of(results));
+
+            log.info("returning patient={}",results);
+
+            return ConditionalResponses.ok(Collections.unmodifiableList(List.of(results)), version);
         }
         //throw exception if id supplied does not correspond to an existing patient
         throw new NotFoundException("Unable to load patient(s). Please make sure all information is correct " +
@@ -92,34 +118,58 @@ public final class PatientController {
     }
 
     /**
-     * Allow the client to update a {@link Patient} information.
+     * Allow a client to get several {@link Patient} by ssn in one call, read in a single query.
+     * @param payload The payload containing the ssns of the patients to return.
+     * @return The patients in the order their ssns were supplied, and the ssns that do not
+     *         belong to any patient.
+     */
+    @GetMapping(path = "lookup")
+    @ApiOperation("Retrieves several patients by ssn")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "The patients that exist were retrieved successfully"),
+            @ApiResponse(code = 400, message = "If no ssns or more than " + BatchLookup.MAX_IDS + " ssns are supplied")
+    })
+    public LookupResult<PatientResponsePayload> lookup(final LookupRequestPayload payload){
+        final LookupResult<PatientResponsePayload> result = BatchLookup.find(
+                payload.getIds(),
+                ssns -> toResponsePayloads(service.getPatientSummaries(ssns)),
+                PatientResponsePayload::getId);
+
+        log.info("Found {} of the requested patient(s), {} missing",
+                result.getResults().size(), result.getMissingIds().size());
+        return result;
+    }
+
+    /**
+     * Allow a client to export every {@link Patient} as newline-delimited JSON.
+     * The patients are streamed from the database as they are written.
+     * @return The response streaming one patient per line.
+     */
+    @GetMapping(path = "export", produces = NdjsonExporter.NDJSON)
+    @ApiOperation("Exports all patients as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> export(){
+        log.info("Exporting all patients");
+        return exporter.export(service::streamPatients, PatientResponsePayload::new);
+    }
+
+    /**
+     * Allow the client to update a {@link Patient} information. Only the supplied details
+     * are changed, and either all of them are changed or none are.
      * @param payload The information about the patient to update.
      * @return The patients new information.
      */
     @PutMapping(path = "update")
     public PatientResponsePayload update (final UpdateRequestPayload payload){
+        //change every supplied detail in a single statement
+        final Patient patient = service.update(
+                payload.getId(),
+                payload.getFirstName(),
+                payload.getLastName(),
+                payload.getPhone(),
+                payload.getAddress(),
+                payload.getDoctorId());
 
-        //if new information is not null, change it and update isSuccessful
-        if (payload.getFirstName() != null){
-            service.changeFirstName(payload.getId(), payload.getFirstName());
-        }
-        if (payload.getLastName() != null){
-            service.changeLastName(payload.getId(), payload.getLastName());
-        }
-        if (payload.getPhone() != null){
-            service.changePhone(payload.getId(), payload.getPhone());
-        }
-        if (payload.getAddress() != null){
-            service.changeAddress(payload.getId(), payload.getAddress());
-        }
-        if (payload.getDoctorId() != null) {
-            service.changeFamilyDoctor(payload.getId(), payload.getDoctorId());
-        }
-
-        //return the patients information
-        Patient patient = service.getPatient(payload.getId());
         return new PatientResponsePayload(patient);
-
     }
 
     /**
@@ -129,13 +179,15 @@ public final class PatientController {
      */
     @PostMapping(path = "add")
     public HttpStatus add(final CreateRequestPayload payload){
-        return service.add(
+        final Patient patient = service.add(
                 payload.getDocId(),
                 payload.getFirstName(),
                 payload.getLastName(),
                 payload.getPhone(),
                 payload.getAddress()
         );
+        log.info("Added patient with ssn={}", patient.getId());
+        return HttpStatus.OK;
     }
 
     /**
@@ -149,6 +201,17 @@ public final class PatientController {
     }
 
 
+    // --------------------------------------------------------------------
+    // :: Private Interface
+    //helper method to turn patient summaries into the payloads returned to the client
+    private static List<PatientResponsePayload> toResponsePayloads(final List<PatientSummary> patients){
+        final List<PatientResponsePayload> results = new ArrayList<>(patients.size());
+        for (PatientSummary patient : patients){
+            results.add(new PatientResponsePayload(patient));
+        }
+        return results;
+    }
+
     // --------------------------------------------------------------------
     // :: Private Nested Classes
     @ToString
@@ -181,6 +244,18 @@ public final class PatientController {
         private final Long id;
     }
 
+    @ToString
+    @Getter
+    @RequiredArgsConstructor
+    @ApiModel(description = "The request details supplied when retrieving several patients from the database.")
+    private static final class LookupRequestPayload{
+        @ApiModelProperty(
+                value = "The unique, database identifiers (ssns) of the patients to retrieve, separated by commas.",
+                required = true,
+                example = "1,2,3")
+        private final String ids;
+    }
+
     @ToString
     @Getter
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -223,8 +298,16 @@ public final class PatientController {
             lastName = patient.getLastName();
             phone = patient.getPhone();
             address = patient.getAddress();
-            doctor = patient.getDoctor();
-            appointments = patient.getAppointments();
+            doctorId = patient.getDoctor() != null ? patient.getDoctor().getId() : null;
+        }
+
+        public PatientResponsePayload(final PatientSummary patient) {
+            id = patient.getId();
+            firstName = patient.getFirstName();
+            lastName = patient.getLastName();
+            phone = patient.getPhone();
+            address = patient.getAddress();
+            doctorId = patient.getDoctorId();
         }
 
         private final Long id;
@@ -232,12 +315,12 @@ public final class PatientController {
         private final String lastName;
         private final String phone;
         private final String address;
-        private final Doctor doctor;
-        private final List<Appointment> appointments;
+        private final Long doctorId;
     }
 
     // --------------------------------------------------------------------
     // :: Private Members
     private final PatientService service;
+    private final NdjsonExporter exporter;
 
 }
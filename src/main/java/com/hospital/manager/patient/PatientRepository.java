@@ -4,17 +4,93 @@
 package com.hospital.manager.patient;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * This interface will allow access to the database.
  */
-public interface PatientRepository extends JpaRepository<Patient,Long> {
+public interface PatientRepository extends JpaRepository<Patient,Long>, PatientUpdateRepository {
     @Query("SELECT s FROM Patient s WHERE s.id = ?1")
     Optional<Patient>findPatientBySsn(final long id);
 
+    /**
+     * Read the version of a patient without loading it or its associations.
+     * @param id The id of the patient.
+     * @return The version of the patient, or empty if no patient has the given id.
+     */
+    @Query("SELECT s.version FROM Patient s WHERE s.id = ?1")
+    Optional<Long> findVersionById(final long id);
+
+    /**
+     * Delete a patient in a single statement, without loading them first.
+     * @param id The ssn of the patient to delete.
+     * @return The number of patients deleted, 0 if no patient has the given ssn.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Patient s WHERE s.id = ?1")
+    int deletePatientBySsn(final long id);
+
+    /**
+     * Find the patient that has a phone number, which is used to tell a client who
+     * already has a number when the database refuses to give it to another patient.
+     * The result of this query is kept in the query cache when the second-level cache
+     * is enabled.
+     * @param phone The phone number.
+     * @return The patient with the phone number, or empty if no patient has it.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = "patient_by_phone")
+    })
     @Query("SELECT s FROM Patient s WHERE s.phone = ?1")
     Optional<Patient>findPatientByPhone(final String phone);
+
+    /**
+     * @return The columns returned to clients of every patient, read in a single
+     *         statement without loading the patients or their family doctors. This
+     *         cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.patient.PatientSummary(s.id, s.firstName, s.lastName, s.phone,"
+        + " s.address, d.id) FROM Patient s LEFT JOIN s.doctor d")
+    List<PatientSummary> findPatientSummaries();
+
+    /**
+     * @param ids The ssns of the patients to find.
+     * @return The columns returned to clients of the patients with the given ssns, in
+     *         no particular order, read in a single statement. Ssns without a patient
+     *         are left out. This cannot be null.
+     */
+    @Query("SELECT new com.hospital.manager.patient.PatientSummary(s.id, s.firstName, s.lastName, s.phone,"
+        + " s.address, d.id) FROM Patient s LEFT JOIN s.doctor d WHERE s.id IN ?1")
+    List<PatientSummary> findPatientSummariesById(final Collection<Long> ids);
+
+    /**
+     * @return A stream of every patient together with their family doctor, read with
+     *         a forward-only cursor in batches of 1000 rows. The rows bypass the
+     *         second-level cache. The stream must be consumed within a transaction
+     *         and closed afterwards.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT s FROM Patient s LEFT JOIN FETCH s.doctor")
+    Stream<Patient> streamAllPatients();
 }
\ No newline at end of file
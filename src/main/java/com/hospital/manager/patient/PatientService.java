@@ -3,15 +3,21 @@
 */
 package com.hospital.manager.patient;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import com.hospital.manager.appointment.DoctorSchedules;
+import com.hospital.manager.cache.EntityCache;
+import com.hospital.manager.cache.ModificationCounter;
 import com.hospital.manager.doctor.Doctor;
 import com.hospital.manager.doctor.DoctorRepository;
 import com.hospital.manager.doctor.DoctorService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
@@ -42,13 +48,128 @@ public final class PatientService {
 
     /**
      * <p>
-     *     A method that will return a specific {@link Patient} to the client.
+     *     A method that will return the summaries of all {@link Patient} in the database,
+     *     read in a single query.
+     * </p>
+     * @return An unmodifiable list of patient summaries.
+     */
+    public List<PatientSummary> getPatientSummaries(){
+        return Collections.unmodifiableList(repository.findPatientSummaries());
+    }
+
+    /**
+     * <p>
+     *     A method that will return a stream of all {@link Patient} in the database,
+     *     read without loading them all into memory.
+     * </p>
+     * @return A stream of patients. This must be consumed within a transaction and
+     *         closed afterwards.
+     */
+    public Stream<Patient> streamPatients(){
+        return repository.streamAllPatients();
+    }
+
+    /**
+     * <p>
+     *     A method that will return the version of the list of all {@link Patient},
+     *     read from memory without querying the database. It changes whenever a
+     *     patient is added, changed or removed through any instance of this application.
+     * </p>
+     * @return The version of the list of patients.
+     */
+    public String getPatientsVersion(){
+        return modifications.collectionVersion();
+    }
+
+    /**
+     * <p>
+     *     A method that will return the version of a {@link Patient} as it was read.
+     *     It changes whenever the patient is changed.
+     * </p>
+     * @param patient The patient.
+     * @return The version of the patient.
+     */
+    public String getPatientVersion(final Patient patient){
+        return getPatientVersion(patient.getId(), patient.getVersion());
+    }
+
+    /**
+     * @param ssn The ssn of a patient.
+     * @param version The value of the version column of the patient.
+     * @return The version of the patient, as {@link #getPatientVersion(Patient)} returns it.
+     */
+    public String getPatientVersion(final long ssn, final long version){
+        return modifications.entityVersion(ssn, version);
+    }
+
+    /**
+     * <p>
+     *     Read the version column of a {@link Patient} without loading the patient, so
+     *     that a client that already has it can be answered without loading it either.
+     * </p>
+     * @param ssn The ssn of the patient.
+     * @return The value of the version column of the patient.
+     * @throws InvalidIdException If no patient has the given ssn.
+     */
+    public long readPatientVersion(final long ssn){
+        return repository.findVersionById(ssn).orElseThrow(() -> new InvalidIdException(
+                "Patient with SSN " + ssn + " not found."));
+    }
+
+    /**
+     * <p>
+     *     A method that will return a specific {@link Patient} to the client. Patients
+     *     are served from a cache when possible, so the returned patient is detached and
+     *     must not be changed.
      * </p>
      * @param ssn The patient to return's ssn.
      * @return The Patient.
      */
     public Patient getPatient(final Long ssn){
-        return find(ssn);
+        return cache.get(ssn, this::find);
+    }
+
+    /**
+     * <p>
+     *     A method that will return a specific {@link Patient} that is at least as recent
+     *     as a version read before, which a cached copy that is older is read again for.
+     * </p>
+     * @param ssn The patient to return's ssn.
+     * @param version The value of the version column of the patient, as returned by
+     *                {@link #readPatientVersion}.
+     * @return The patient.
+     */
+    public Patient getPatient(final long ssn, final long version){
+        final Patient patient = getPatient(ssn);
+        if (patient.getVersion() >= version){
+            return patient;
+        }
+        cache.invalidate(ssn);
+        return getPatient(ssn);
+    }
+
+    /**
+     * <p>
+     *     A method that will return several {@link Patient} using a single query.
+     * </p>
+     * @param ssns The ssns of the patients to return.
+     * @return An unmodifiable list of the patients that exist, in no particular order.
+     */
+    public List<Patient> getPatients(final Collection<Long> ssns){
+        return Collections.unmodifiableList(repository.findAllById(ssns));
+    }
+
+    /**
+     * <p>
+     *     A method that will return the summaries of several {@link Patient}, read in a
+     *     single query.
+     * </p>
+     * @param ssns The ssns of the patients to return.
+     * @return An unmodifiable list of the summaries of the patients that exist, in no
+     *         particular order.
+     */
+    public List<PatientSummary> getPatientSummaries(final Collection<Long> ssns){
+        return Collections.unmodifiableList(repository.findPatientSummariesById(ssns));
     }
 
     /**
@@ -60,9 +181,9 @@ public final class PatientService {
      * @param lastName The patients last name.
      * @param phone The patients phone number.
      * @param address The patients address.
-     * @return The status of if the patient was successfully added to the database.
+     * @return The new patient, with their generated ssn.
      */
-    public HttpStatus add(final Long doctorId, final String firstName, final String lastName,
+    public Patient add(final Long doctorId, final String firstName, final String lastName,
                           final String phone, final String address){
         //make sure phone number is the correct length
         if (phone.length() != 10){
@@ -77,14 +198,16 @@ public final class PatientService {
         patient.setPhone(phone);
         patient.setAddress(address);
 
-        repository.save(patient);
-
-        //make sure the patient was added, throw an exception if not
-        if (repository.findPatientByPhone(phone).isPresent()){
-            return HttpStatus.OK;
+        //insert the patient, the database rejects the row if it is not valid
+        try {
+            final Patient added = repository.save(patient);
+            modifications.changed();
+            return added;
+        }
+        catch (DataIntegrityViolationException e){
+            throw refused(0L, phone, "The new patient could not be added to the database. Please ensure all information" +
+                    " is correct and try again");
         }
-        throw new FailedRequestException("The new patient could not be added to the database. Please ensure all information" +
-                " is correct and try again");
     }
 
     /**
@@ -95,130 +218,86 @@ public final class PatientService {
      * @return The status of if the patient was successfully removed to the database.
      */
     public HttpStatus remove(final Long ssn){
-        //make sure the patient exists, exception will be thrown if not
-        find(ssn);
-        //delete the patient if no exception was thrown
-        repository.deleteById(ssn);
-
+        //delete the patient in a single statement, the number of rows deleted tells us if they existed
+        final int deleted;
         try {
-            //try to find the patient in the database, they should not be there
-            repository.findPatientBySsn(ssn);
+            deleted = repository.deletePatientBySsn(ssn);
         }
-        //catch the exception that should be thrown
-        catch (InvalidIdException e){
-            //return OK since they are no longer there
-            return HttpStatus.OK;
+        //the database refuses to delete a patient who still has appointments
+        catch (DataIntegrityViolationException e){
+            throw new FailedRequestException("The patient could not be deleted from the database because they still" +
+                    " have appointments. Please cancel them and try again.");
         }
-        throw new FailedRequestException("The patient could not be deleted from the database." +
-                " Please make sure all information is correct and try again.");
-    }
 
-    /**
-     * <p>
-     *     A method to change the first name of a {@link Patient}.
-     * </p>>
-     * @param ssn The ssn of the patient.
-     * @param firstName The patients first name.
-     */
-    public void changeFirstName(final Long ssn, final String firstName)
-    {
-        //get the patient from the database
-        final Patient patient = find(ssn);
-
-        //make sure firstName is not null, has length > 0 and is not the same as the current first name
-        if (firstName != null && !firstName.isEmpty() && !Objects.equals(patient.getFirstName(),firstName)){
-            //set the new first name
-            patient.setFirstName(firstName);
-            return;
+        if (deleted == 0){
+            throw new InvalidIdException("Patient with SSN " + ssn + " not found.");
         }
-        throw new FailedRequestException("The patients first name could not be updated." +
-                " Please make sure all information is correct and try again.");
+        cache.invalidate(ssn);
+        modifications.changed();
+        return HttpStatus.OK;
     }
 
     /**
      * <p>
-     *     A method to change the last name of a {@link Patient}.
+     *     A method to change any of the details of a {@link Patient} at once. Every
+     *     supplied detail is checked first and then only the supplied columns are
+     *     changed, in a single statement, so either every change is made or none is.
      * </p>
      * @param ssn The ssn of the patient.
-     * @param lastName The patients new last name.
+     * @param firstName The patients new first name, or null to keep it.
+     * @param lastName The patients new last name, or null to keep it.
+     * @param phone The patients new phone number, or null to keep it.
+     * @param address The patients new address, or null to keep it.
+     * @param doctorId The id of the patients new family {@link Doctor}, or null to keep them.
+     * @return The patient as the update left them, with their new version.
      */
-    public void changeLastName(final Long ssn, final String lastName){
-        //get the patient from the database
-        final Patient patient = find(ssn);
-
-        //make sure lastName is not null, has length > 0 and is not the same as the current last name
-        if (lastName != null && !lastName.isEmpty() && !Objects.equals(patient.getLastName(),lastName)){
-            //set the new last name
-            patient.setLastName(lastName);
-            return;
+    public Patient update(final Long ssn, final String firstName, final String lastName, final String phone,
+                          final String address, final Long doctorId){
+        //check every supplied detail before changing anything
+        if (ssn == null){
+            throw new InvalidIdException("Please supply the SSN of the patient to update.");
         }
-        throw new FailedRequestException("The patients last name could not be updated." +
-                " Please make sure all information is correct and try again.");
-    }
-
-    /**
-     * <p>
-     *     A method to change the {@link Doctor} of a {@link Patient}.
-     * </p>
-     * @param ssn The patients ssn.
-     * @param doctorId The new doctors id.
-     */
-    public void changeFamilyDoctor(final Long ssn, final Long doctorId){
-        //get the patient from the database
-        final Patient patient = find(ssn);
-        final Doctor doctor = doctorService.getDoctor(doctorId);
-
-        //make sure doctorId is not null,  and is not the same as the current doctor id
-        if ((!Objects.equals(patient.getDoctor().getId(),doctor.getId()))){
-            //set the patients new family doctor id
-            patient.setDoctor(doctorService.getDoctor(doctorId));
-            return;
+        if (firstName != null && firstName.isEmpty()){
+            throw new FailedRequestException("The patients first name cannot be empty. Please try again.");
         }
-        throw new FailedRequestException("The patients family doctor could not be updated." +
-                " Please make sure all information is correct and try again.");
-
-    }
-
-    /**
-     * <p>
-     *     A method to change the phone number of an {@link Patient}
-     * </p>
-     * @param ssn the patients ssn.
-     * @param newPhone the patients new phone number.
-     */
-    public void changePhone(final Long ssn, final String newPhone){
-        //get the patient from the database
-        final Patient patient = find(ssn);
+        if (lastName != null && lastName.isEmpty()){
+            throw new FailedRequestException("The patients last name cannot be empty. Please try again.");
+        }
+        if (phone != null && phone.length() != 10){
+            throw new FailedRequestException("The phone number you enter must be 10 digits long. Please try again.");
+        }
+        if (address != null && address.isEmpty()){
+            throw new FailedRequestException("The patients address cannot be empty. Please try again.");
+        }
+        //make sure the new doctor exists, exception will be thrown if not
+        final Doctor doctor = doctorId != null ? doctorService.getDoctor(doctorId) : null;
 
-        //make sure newPhone is not null, has length = 10 and is not the same as the current phone number
-        if (newPhone != null && newPhone.length() == 10 && !(Objects.equals(newPhone,patient.getPhone()))){
-            //set the new phone number
-            patient.setPhone(newPhone);
-            return;
+        //make sure the patient exists, exception will be thrown if not
+        final Patient current = getPatient(ssn);
+        if (firstName == null && lastName == null && phone == null && address == null && doctorId == null){
+            return current;
         }
-        throw new FailedRequestException("The patients phone number could not be updated." +
-                " Please make sure all information is correct and try again.");
-    }
 
-    /**
-     * <p>
-     *     A method to change the address of a {@link Patient}.
-     * </p>
-     * @param ssn The patients ssn.
-     * @param newAddress The patients new address.
-     */
-    public void changeAddress(final Long ssn, final String newAddress){
-        //get the patient from the database
-        final Patient patient = find(ssn);
+        //change only the supplied columns
+        final Patient patient;
+        try {
+            patient = repository.updatePatient(ssn, firstName, lastName, phone, address, doctor).orElseThrow(
+                    () -> new InvalidIdException("Patient with SSN " + ssn + " not found."));
+        }
+        //the database refuses the change if the new doctor was removed in the meantime, or if
+        //another patient already has the new phone number
+        catch (DataIntegrityViolationException e){
+            throw refused(ssn, phone, "The patient could not be updated." +
+                    " Please make sure all information is correct and try again.");
+        }
+        cache.invalidate(ssn);
+        modifications.changed();
 
-        //make sure newAddress is not null, has length > 0 and is not the same as the current first name
-        if (newAddress != null && !newAddress.isEmpty() && !Objects.equals(patient.getAddress(),newAddress)){
-            //set the new address
-            patient.setAddress(newAddress);
-            return;
+        //show the new name on the doctors schedules
+        if (firstName != null || lastName != null){
+            schedules.renamePatient(ssn, patient.getFirstName(), patient.getLastName());
         }
-        throw new FailedRequestException("The patients address could not be updated." +
-                " Please make sure all information is correct and try again.");
+        return patient;
     }
 
     // --------------------------------------------------------------------
@@ -232,8 +311,26 @@ public final class PatientService {
                 "Patient with SSN " + ssn + " not found."));
     }
 
+    //A helper method to explain a write the database refused, by naming the other patient who already has the phone
+    //number if that is why. This only queries the database once a write has failed
+    private FailedRequestException refused(final long id, final String phone, final String message){
+        final Optional<Patient> holder = phone == null ? Optional.empty()
+                : repository.findPatientByPhone(phone).filter(other -> other.getId() != id);
+        if (holder.isPresent()){
+            return new FailedRequestException("The phone number " + phone + " already belongs to patient "
+                    + holder.get().getId() + ". Please try again with another number.");
+        }
+        return new FailedRequestException(message);
+    }
+
     // --------------------------------------------------------------------
     // :: Private Members
     private final PatientRepository repository;
     private final DoctorService doctorService;
+    //the cache of patients by ssn
+    private final EntityCache<Long, Patient> cache;
+    //counts the changes made to patients, which clients compare their copies against
+    private final ModificationCounter<Patient> modifications;
+    //the schedules showing the names of patients with appointments
+    private final DoctorSchedules schedules;
 }
@@ -0,0 +1,47 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.patient;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The columns of a {@link Patient} returned to clients, read by a projection query
+ * without loading the patient or their family doctor.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class PatientSummary {
+    /**
+     * The patients ssn.
+     */
+    private final long id;
+
+    /**
+     * The patients first name.
+     */
+    private final String firstName;
+
+    /**
+     * The patients last name.
+     */
+    private final String lastName;
+
+    /**
+     * The patients phone number.
+     */
+    private final String phone;
+
+    /**
+     * The patients address.
+     */
+    private final String address;
+
+    /**
+     * The id of the patients family doctor, or null if they have none.
+     */
+    private final Long doctorId;
+}
@@ -0,0 +1,33 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.patient;
+
+import java.util.Optional;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hospital.manager.doctor.Doctor;
+
+/**
+ * Partial updates of a {@link Patient}, mixed into the {@link PatientRepository}.
+ */
+public interface PatientUpdateRepository {
+    /**
+     * Update the supplied columns of a patient in a single UPDATE statement. Columns
+     * whose new value is null are left unchanged and are not part of the statement.
+     * At least one new value must be supplied.
+     * @param id The ssn of the patient to update.
+     * @param firstName The patients new first name, or null to keep it.
+     * @param lastName The patients new last name, or null to keep it.
+     * @param phone The patients new phone number, or null to keep it.
+     * @param address The patients new address, or null to keep it.
+     * @param doctor The patients new family doctor, or null to keep them. Only its id
+     *               is used, so it does not need to be managed.
+     * @return The patient as the statement left it, read again in the same transaction so
+     *         that no later change is mixed in, or empty if no patient has the given ssn.
+     */
+    @Transactional
+    Optional<Patient> updatePatient(final long id, final String firstName, final String lastName, final String phone,
+                      final String address, final Doctor doctor);
+}
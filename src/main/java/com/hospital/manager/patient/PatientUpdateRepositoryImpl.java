@@ -0,0 +1,71 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.patient;
+
+import static org.hibernate.cfg.AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE;
+
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+import com.hospital.manager.doctor.Doctor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Builds the UPDATE statements of the {@link PatientUpdateRepository} from the
+ * columns that are actually changed.
+ */
+@RequiredArgsConstructor
+class PatientUpdateRepositoryImpl implements PatientUpdateRepository {
+
+    @Override
+    public Optional<Patient> updatePatient(final long id, final String firstName, final String lastName, final String phone,
+                             final String address, final Doctor doctor) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaUpdate<Patient> update = builder.createCriteriaUpdate(Patient.class);
+        final Root<Patient> patient = update.from(Patient.class);
+
+        //only set the columns that were supplied
+        if (firstName != null){
+            update.set(patient.<String>get("firstName"), firstName);
+        }
+        if (lastName != null){
+            update.set(patient.<String>get("lastName"), lastName);
+        }
+        if (phone != null){
+            update.set(patient.<String>get("phone"), phone);
+        }
+        if (address != null){
+            update.set(patient.<String>get("address"), address);
+        }
+        if (doctor != null){
+            update.set(patient.<Doctor>get("doctor"), doctor);
+        }
+        if (firstName == null && lastName == null && phone == null && address == null && doctor == null){
+            throw new IllegalArgumentException("At least one column of patient " + id + " must be updated.");
+        }
+
+        //the update bypasses the persistence context, so increment the version here
+        update.set(patient.<Long>get("version"), builder.sum(patient.<Long>get("version"), 1L));
+
+        update.where(builder.equal(patient.get("id"), id));
+        if (entityManager.createQuery(update).executeUpdate() == 0){
+            return Optional.empty();
+        }
+
+        //nothing in this transaction has loaded the patient before the statement, so this reads the row it wrote.
+        //the second-level cache is only cleared of the old copy once the transaction ends, so it is bypassed
+        return Optional.ofNullable(entityManager.find(Patient.class, id,
+                Map.of(JPA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)));
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final EntityManager entityManager;
+}
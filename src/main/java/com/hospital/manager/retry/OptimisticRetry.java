@@ -0,0 +1,167 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Runs read-modify-write operations on versioned entities again when they fail
+ * because another request changed the same entity first. Every attempt must read
+ * the entity again, so that it works on the latest version.
+ * </p>
+ *
+ * <p>
+ * An operation is attempted at most a fixed number of times. Between two attempts
+ * the thread waits a random time of up to the backoff multiplied by the number of
+ * failed attempts, so that requests racing for the same rows spread out instead of
+ * colliding again. The number of calls, retries and failures of each operation is
+ * recorded and can be read with {@link #getStatistics()}.
+ * </p>
+ */
+@Slf4j
+public final class OptimisticRetry
+{
+    /**
+     * @param maximumAttempts The maximum number of times an operation is attempted.
+     *                        This must be positive.
+     * @param backoff The base time waited between two attempts.
+     */
+    public OptimisticRetry(final int maximumAttempts, final Duration backoff)
+    {
+        if (maximumAttempts < 1)
+        {
+            throw new IllegalArgumentException("The maximum number of attempts must be positive.");
+        }
+
+        this.maximumAttempts = maximumAttempts;
+        this.backoffNanos = backoff.toNanos();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Run an operation, attempting it again if it fails with an
+     * {@link OptimisticLockingFailureException}.
+     * @param operation The name of the operation, used in the statistics. This cannot
+     *                  be null.
+     * @param action The operation to run. It must read the entities it changes on
+     *               every attempt. This cannot be null.
+     * @param <T> The type of the result of the operation.
+     * @return The result of the operation.
+     * @throws FailedRequestException If every attempt failed because of concurrent
+     *                                changes.
+     */
+    public <T> T execute(final String operation, final Supplier<T> action)
+    {
+        final Counters counters = this.counters.computeIfAbsent(operation, key -> new Counters());
+        counters.calls.increment();
+
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                return action.get();
+            }
+            catch (final OptimisticLockingFailureException e)
+            {
+                if (attempt >= maximumAttempts)
+                {
+                    counters.failures.increment();
+                    log.warn("Giving up on {} after {} attempt(s) that conflicted with other changes.",
+                        operation, attempt);
+                    throw new FailedRequestException("The record was changed by other requests at the same time."
+                        + " Please try again.");
+                }
+
+                counters.retries.increment();
+                log.debug("Attempt {} of {} conflicted with another change, retrying.", attempt, operation);
+                pause(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Run an operation without a result, attempting it again if it fails with an
+     * {@link OptimisticLockingFailureException}.
+     * @param operation The name of the operation, used in the statistics. This cannot
+     *                  be null.
+     * @param action The operation to run. It must read the entities it changes on
+     *               every attempt. This cannot be null.
+     * @throws FailedRequestException If every attempt failed because of concurrent
+     *                                changes.
+     */
+    public void execute(final String operation, final Runnable action)
+    {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return A snapshot of the statistics of every operation run so far. This cannot
+     *         be null.
+     */
+    public List<RetryStatistics> getStatistics()
+    {
+        final List<RetryStatistics> statistics = new ArrayList<>();
+
+        counters.forEach((operation, counters) -> statistics.add(new RetryStatistics(
+            operation,
+            counters.calls.sum(),
+            counters.retries.sum(),
+            counters.failures.sum())));
+
+        return statistics;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    private void pause(final int failedAttempts, final OptimisticLockingFailureException cause)
+    {
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffNanos * failedAttempts + 1));
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Nested Classes
+
+    // The counters of one operation.
+    private static final class Counters
+    {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final int maximumAttempts;
+    private final long backoffNanos;
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+}
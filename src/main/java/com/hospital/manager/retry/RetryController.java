@@ -0,0 +1,56 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.retry;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Represents the REST endpoints that report how often changes had to be retried
+ * because of concurrent changes to the same records.
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Api(tags = "retry")
+@RequestMapping(path = "retry")
+public final class RetryController
+{
+    // --------------------------------------------------------------------
+    // :: Public Interface
+
+    /**
+     * Allow a client to get the retry statistics of every operation.
+     * @return The statistics of each operation. This cannot be null.
+     */
+    @GetMapping(path = "statistics")
+    @ApiOperation("Retrieves the call, retry and failure statistics of every retried operation")
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "The statistics were retrieved successfully")
+    })
+    public List<RetryStatistics> statistics()
+    {
+        final List<RetryStatistics> statistics = retry.getStatistics();
+
+        log.info("Returning the retry statistics of {} operation(s).", statistics.size());
+
+        return statistics;
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    private final OptimisticRetry retry;
+}
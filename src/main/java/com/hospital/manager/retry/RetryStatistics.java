@@ -0,0 +1,46 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.retry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A snapshot of the statistics of one operation run by an {@link OptimisticRetry}.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class RetryStatistics
+{
+    /**
+     * @return The average number of retries per call, or 0 if there have been no
+     *         calls.
+     */
+    public double getRetryRate()
+    {
+        return calls == 0 ? 0 : (double) retries / calls;
+    }
+
+    /**
+     * The name of the operation.
+     */
+    private final String operation;
+
+    /**
+     * The number of times the operation was run.
+     */
+    private final long calls;
+
+    /**
+     * The number of attempts that conflicted with another change and were retried.
+     */
+    private final long retries;
+
+    /**
+     * The number of calls that still conflicted after the last attempt.
+     */
+    private final long failures;
+}
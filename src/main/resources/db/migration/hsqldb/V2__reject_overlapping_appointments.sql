@@ -0,0 +1,36 @@
+-- Rejects appointments that overlap another appointment of the same doctor or room.
+-- HSQLDB has no exclusion constraints, so triggers look for an overlapping
+-- appointment before each insert and update. An appointment lasts at most a day, so
+-- only the appointments starting in the day before the new one can overlap it, and
+-- each lookup is a range scan of the (doctor_id, start_minute) or
+-- (room, start_minute) unique index.
+
+CREATE TRIGGER appointment_overlap_insert BEFORE INSERT ON appointment
+    REFERENCING NEW ROW AS n FOR EACH ROW
+    WHEN (EXISTS (SELECT 1 FROM appointment a
+                  WHERE a.doctor_id = n.doctor_id AND a.id <> n.id
+                  AND a.start_minute > n.start_minute - 1440
+                  AND a.start_minute < n.start_minute + n.duration
+                  AND a.start_minute + a.duration > n.start_minute)
+          OR EXISTS (SELECT 1 FROM appointment a
+                  WHERE a.room = n.room AND a.id <> n.id
+                  AND a.start_minute > n.start_minute - 1440
+                  AND a.start_minute < n.start_minute + n.duration
+                  AND a.start_minute + a.duration > n.start_minute))
+    SIGNAL SQLSTATE '23P01'
+        SET MESSAGE_TEXT = 'The appointment overlaps another appointment of the same doctor or room.';
+
+CREATE TRIGGER appointment_overlap_update BEFORE UPDATE ON appointment
+    REFERENCING NEW ROW AS n FOR EACH ROW
+    WHEN (EXISTS (SELECT 1 FROM appointment a
+                  WHERE a.doctor_id = n.doctor_id AND a.id <> n.id
+                  AND a.start_minute > n.start_minute - 1440
+                  AND a.start_minute < n.start_minute + n.duration
+                  AND a.start_minute + a.duration > n.start_minute)
+          OR EXISTS (SELECT 1 FROM appointment a
+                  WHERE a.room = n.room AND a.id <> n.id
+                  AND a.start_minute > n.start_minute - 1440
+                  AND a.start_minute < n.start_minute + n.duration
+                  AND a.start_minute + a.duration > n.start_minute))
+    SIGNAL SQLSTATE '23P01'
+        SET MESSAGE_TEXT = 'The appointment overlaps another appointment of the same doctor or room.';
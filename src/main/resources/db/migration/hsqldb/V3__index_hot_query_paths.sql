@@ -0,0 +1,12 @@
+-- Indexes for the lookups made on every request. The appointments of a doctor or a
+-- room are already found through the (doctor_id, start_minute) and
+-- (room, start_minute) unique constraints created with the appointment table.
+--
+-- Doctors and patients are looked up by phone number (see DoctorRepository and
+-- PatientRepository), which identifies a single doctor or patient.
+ALTER TABLE doctor ADD CONSTRAINT doctor_phone_key UNIQUE (phone);
+ALTER TABLE patient ADD CONSTRAINT patient_phone_key UNIQUE (phone);
+
+-- The patients of a doctor are found by the doctor id, and a doctor can only be
+-- removed once no patient refers to them.
+CREATE INDEX patient_doctor_idx ON patient (doctor_id);
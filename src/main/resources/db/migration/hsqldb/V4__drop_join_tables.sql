@@ -0,0 +1,9 @@
+-- The appointments and patients of a doctor and the appointments of a patient are
+-- now read through the doctor_id and patient_id columns of the appointment and
+-- patient tables, so the join tables that duplicated them are dropped. The HSQLDB
+-- database is held in memory and always starts empty, so there is no data to move
+-- (see the PostgreSQL migration).
+
+DROP TABLE doctor_appointments;
+DROP TABLE doctor_patients;
+DROP TABLE patient_appointments;
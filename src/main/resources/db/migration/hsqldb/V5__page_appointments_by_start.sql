@@ -0,0 +1,12 @@
+-- The pages of GET /appointment are ordered by start minute and then id, and each
+-- page starts after the start minute and id of the last appointment of the previous
+-- one (see AppointmentRepository.findAppointmentPage). These indexes hold the
+-- appointments in that order, on their own, per doctor and per patient, so a page
+-- only reads its own rows however many appointments there are. The index on
+-- (patient_id, start_minute) is replaced by the one that also orders by id.
+
+CREATE INDEX appointment_start_idx ON appointment (start_minute, id);
+CREATE INDEX appointment_doctor_start_idx ON appointment (doctor_id, start_minute, id);
+
+DROP INDEX appointment_patient_date_idx;
+CREATE INDEX appointment_patient_start_idx ON appointment (patient_id, start_minute, id);
@@ -0,0 +1,73 @@
+-- The tables, sequences and constraints of the hospital management system.
+--
+-- The sequences are incremented by the number of ids reserved at a time (see
+-- hospital.id.allocation_size and PooledSequenceGenerator).
+
+CREATE SEQUENCE doctor_sequence START 1 INCREMENT 50;
+CREATE SEQUENCE patient_sequence START 1 INCREMENT 50;
+CREATE SEQUENCE appointment_sequence START 1 INCREMENT 50;
+
+CREATE TABLE doctor (
+    id BIGINT NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    phone VARCHAR(255),
+    version BIGINT NOT NULL,
+    CONSTRAINT doctor_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE patient (
+    id BIGINT NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    phone VARCHAR(255),
+    address VARCHAR(255),
+    doctor_id BIGINT,
+    version BIGINT NOT NULL,
+    CONSTRAINT patient_pkey PRIMARY KEY (id),
+    CONSTRAINT patient_doctor_fkey FOREIGN KEY (doctor_id) REFERENCES doctor (id)
+);
+
+CREATE TABLE appointment (
+    id BIGINT NOT NULL,
+    patient_id BIGINT,
+    doctor_id BIGINT,
+    room INTEGER NOT NULL,
+    start_minute INTEGER NOT NULL,
+    duration INTEGER NOT NULL,
+    version BIGINT NOT NULL,
+    CONSTRAINT appointment_pkey PRIMARY KEY (id),
+    CONSTRAINT appointment_patient_fkey FOREIGN KEY (patient_id) REFERENCES patient (id),
+    CONSTRAINT appointment_doctor_fkey FOREIGN KEY (doctor_id) REFERENCES doctor (id),
+    CONSTRAINT appointment_doctor_date_key UNIQUE (doctor_id, start_minute),
+    CONSTRAINT appointment_room_date_key UNIQUE (room, start_minute)
+);
+
+CREATE INDEX appointment_patient_date_idx ON appointment (patient_id, start_minute);
+
+-- The join tables holding the appointments and patients collections of Doctor and
+-- the appointments collection of Patient.
+
+CREATE TABLE doctor_appointments (
+    doctor_id BIGINT NOT NULL,
+    appointments_id BIGINT NOT NULL,
+    CONSTRAINT doctor_appointments_appointments_id_key UNIQUE (appointments_id),
+    CONSTRAINT doctor_appointments_doctor_fkey FOREIGN KEY (doctor_id) REFERENCES doctor (id),
+    CONSTRAINT doctor_appointments_appointment_fkey FOREIGN KEY (appointments_id) REFERENCES appointment (id)
+);
+
+CREATE TABLE doctor_patients (
+    doctor_id BIGINT NOT NULL,
+    patients_id BIGINT NOT NULL,
+    CONSTRAINT doctor_patients_patients_id_key UNIQUE (patients_id),
+    CONSTRAINT doctor_patients_doctor_fkey FOREIGN KEY (doctor_id) REFERENCES doctor (id),
+    CONSTRAINT doctor_patients_patient_fkey FOREIGN KEY (patients_id) REFERENCES patient (id)
+);
+
+CREATE TABLE patient_appointments (
+    patient_id BIGINT NOT NULL,
+    appointments_id BIGINT NOT NULL,
+    CONSTRAINT patient_appointments_appointments_id_key UNIQUE (appointments_id),
+    CONSTRAINT patient_appointments_patient_fkey FOREIGN KEY (patient_id) REFERENCES patient (id),
+    CONSTRAINT patient_appointments_appointment_fkey FOREIGN KEY (appointments_id) REFERENCES appointment (id)
+);
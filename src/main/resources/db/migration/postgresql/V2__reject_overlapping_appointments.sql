@@ -0,0 +1,13 @@
+-- Rejects appointments that overlap another appointment of the same doctor or room.
+-- Each appointment takes the range of minutes [start_minute, start_minute + duration),
+-- and a GiST index on the doctor (or room) and that range finds the overlapping
+-- appointments in O(log n). The btree_gist extension lets the GiST index compare the
+-- doctor ids and rooms for equality.
+
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE appointment ADD CONSTRAINT appointment_doctor_overlap
+    EXCLUDE USING gist (doctor_id WITH =, int4range(start_minute, start_minute + duration) WITH &&);
+
+ALTER TABLE appointment ADD CONSTRAINT appointment_room_overlap
+    EXCLUDE USING gist (room WITH =, int4range(start_minute, start_minute + duration) WITH &&);
@@ -0,0 +1,23 @@
+-- The appointments and patients of a doctor and the appointments of a patient are
+-- now read through the doctor_id and patient_id columns of the appointment and
+-- patient tables, so the join tables that duplicated them are dropped. A row that
+-- is only linked through a join table gets the link copied to its own column first.
+
+UPDATE appointment SET doctor_id =
+    (SELECT j.doctor_id FROM doctor_appointments j WHERE j.appointments_id = appointment.id)
+    WHERE doctor_id IS NULL
+    AND EXISTS (SELECT 1 FROM doctor_appointments j WHERE j.appointments_id = appointment.id);
+
+UPDATE appointment SET patient_id =
+    (SELECT j.patient_id FROM patient_appointments j WHERE j.appointments_id = appointment.id)
+    WHERE patient_id IS NULL
+    AND EXISTS (SELECT 1 FROM patient_appointments j WHERE j.appointments_id = appointment.id);
+
+UPDATE patient SET doctor_id =
+    (SELECT j.doctor_id FROM doctor_patients j WHERE j.patients_id = patient.id)
+    WHERE doctor_id IS NULL
+    AND EXISTS (SELECT 1 FROM doctor_patients j WHERE j.patients_id = patient.id);
+
+DROP TABLE doctor_appointments;
+DROP TABLE doctor_patients;
+DROP TABLE patient_appointments;
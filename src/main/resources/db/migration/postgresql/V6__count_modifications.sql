@@ -0,0 +1,17 @@
+-- The number of changes made to the doctors, patients and appointments, which
+-- makes up the version of each collection served as an ETag (see
+-- ModificationCounter). Every instance of this application counts its changes in
+-- the same row, so a change made through one instance changes the version seen by
+-- all of them. The time a row was created is part of the version too, so that the
+-- versions of a recreated database are never mistaken for the old ones.
+
+CREATE TABLE modification (
+    name VARCHAR(32) NOT NULL,
+    created TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    changes BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT modification_pkey PRIMARY KEY (name)
+);
+
+INSERT INTO modification (name) VALUES ('doctor');
+INSERT INTO modification (name) VALUES ('patient');
+INSERT INTO modification (name) VALUES ('appointment');
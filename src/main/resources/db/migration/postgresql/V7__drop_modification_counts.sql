@@ -0,0 +1,5 @@
+-- The versions served as ETags are now kept in memory by each instance of this
+-- application and read from the tables they describe (see ModificationCounter),
+-- so the changes are no longer counted in a shared row that every write updates.
+
+DROP TABLE modification;
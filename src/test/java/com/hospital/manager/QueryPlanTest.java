@@ -0,0 +1,100 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * <p>
+ * Checks that the queries made on every request are served by the indexes the
+ * migrations create, by asking HSQLDB for the plan of each query on the migrated
+ * schema. A query that only finds its rows by scanning the whole table would slow
+ * down as the table grows.
+ * </p>
+ *
+ * <p>
+ * The statements below are the SQL forms of the queries in the repositories and the
+ * CSV importer, and must be kept in step with them.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("hsqldb")
+class QueryPlanTest
+{
+    // The phone numbers already used, checked for every imported batch (see CsvImporter).
+    @Test
+    void findsDoctorPhonesByIndex()
+    {
+        assertIndexed("SELECT phone FROM doctor WHERE phone IN (?, ?)", "DOCTOR_PHONE_KEY");
+    }
+
+    @Test
+    void findsPatientPhonesByIndex()
+    {
+        assertIndexed("SELECT phone FROM patient WHERE phone IN (?, ?)", "PATIENT_PHONE_KEY");
+    }
+
+    // The appointments of a doctor around a slot (see AppointmentRepository.findDoctorSlots).
+    @Test
+    void findsDoctorSlotsByIndex()
+    {
+        assertIndexed("SELECT id, doctor_id, room, start_minute, version, duration FROM appointment"
+            + " WHERE doctor_id = ? AND start_minute >= ? AND start_minute < ?", "APPOINTMENT_DOCTOR");
+    }
+
+    // A page of the appointments of a doctor (see AppointmentRepository.findDoctorAppointmentPage).
+    @Test
+    void pagesDoctorAppointmentsByIndex()
+    {
+        assertIndexed("SELECT id, patient_id, doctor_id, room, start_minute, duration FROM appointment"
+            + " WHERE doctor_id = ? AND start_minute >= ? AND start_minute < ?"
+            + " AND (start_minute > ? OR id > ?) ORDER BY start_minute, id LIMIT 20", "APPOINTMENT_DOCTOR");
+    }
+
+    // The appointments in a room around a slot (see AppointmentRepository.findRoomSlots).
+    @Test
+    void findsRoomSlotsByIndex()
+    {
+        assertIndexed("SELECT id, doctor_id, room, start_minute, version, duration FROM appointment"
+            + " WHERE room = ? AND start_minute >= ? AND start_minute < ?", "APPOINTMENT_ROOM");
+    }
+
+    // A page of the appointments of a patient (see AppointmentRepository.findPatientAppointmentPage).
+    @Test
+    void pagesPatientAppointmentsByIndex()
+    {
+        assertIndexed("SELECT id, patient_id, doctor_id, room, start_minute, duration FROM appointment"
+            + " WHERE patient_id = ? AND start_minute >= ? AND start_minute < ?"
+            + " AND (start_minute > ? OR id > ?) ORDER BY start_minute, id LIMIT 20", "APPOINTMENT_PATIENT");
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Assert that the plan of a query reads its table through an index whose name
+    // contains the given text. An IN list is itself read in full and joined to the
+    // table through the index, so the plan is searched for the index access rather
+    // than for the absence of a full scan.
+    private void assertIndexed(final String sql, final String index)
+    {
+        final String plan = String.join("\n", jdbc.queryForList("EXPLAIN PLAN FOR " + sql, String.class));
+
+        assertThat(plan).as("The plan of %s", sql)
+            .contains("access=INDEX PRED")
+            .containsPattern("index=[\\w.]*" + index);
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    @Autowired
+    private JdbcTemplate jdbc;
+}
@@ -0,0 +1,252 @@
+/*
+  Copyright 2021, Justin Rackley, All rights reserved.
+*/
+package com.hospital.manager.appointment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.hospital.manager.doctor.DoctorService;
+import com.hospital.manager.exception.CustomException.FailedRequestException;
+import com.hospital.manager.patient.PatientService;
+
+/**
+ * <p>
+ * Books conflicting appointments from many threads at once through
+ * {@link AppointmentService#book}, and checks that exactly one booking wins each
+ * slot, that every other booking is rejected as a conflict, and that no doctor or
+ * room ends up with overlapping appointments in the database.
+ * </p>
+ *
+ * <p>
+ * Every test books its own doctors, patients and rooms, so the tests do not depend
+ * on each other or on their order. The throughput of the same bookings is measured by
+ * BookingStressBenchmark.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("hsqldb")
+class ConcurrentBookingTest
+{
+    // Every booking is for the same doctor and room at the same time.
+    @Test
+    void booksTheSameSlotOnce()
+    {
+        final long doctor = hireDoctor();
+        final int room = nextRoom();
+
+        final List<Callable<Object>> bookings = new ArrayList<>();
+        for (int i = 0; i < GROUPS * PER_GROUP; i++)
+        {
+            final long patient = addPatient(doctor);
+            bookings.add(() -> service.book(patient, doctor, START, room, DURATION));
+        }
+
+        assertThat(bookConcurrently(bookings)).isEqualTo(1);
+        assertThat(countAppointments("doctor_id", doctor)).isEqualTo(1);
+        assertNoOverlaps();
+    }
+
+    // The bookings of a group start a few minutes apart in rooms of their own, so
+    // they only conflict through their doctor.
+    @Test
+    void booksOverlappingSlotsOfADoctorOnce()
+    {
+        final long doctor = hireDoctor();
+        final long patient = addPatient(doctor);
+
+        final List<Callable<Object>> bookings = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++)
+        {
+            for (int i = 0; i < PER_GROUP; i++)
+            {
+                final LocalDateTime start = startOf(group, i);
+                final int room = nextRoom();
+                bookings.add(() -> service.book(patient, doctor, start, room, DURATION));
+            }
+        }
+
+        assertThat(bookConcurrently(bookings)).isEqualTo(GROUPS);
+        assertThat(countAppointments("doctor_id", doctor)).isEqualTo(GROUPS);
+        assertNoOverlaps();
+    }
+
+    // The bookings of a group start a few minutes apart with doctors of their own, so
+    // they only conflict through their room.
+    @Test
+    void booksOverlappingSlotsOfARoomOnce()
+    {
+        final int room = nextRoom();
+        final long[] doctors = new long[PER_GROUP];
+        final long[] patients = new long[PER_GROUP];
+        for (int i = 0; i < PER_GROUP; i++)
+        {
+            doctors[i] = hireDoctor();
+            patients[i] = addPatient(doctors[i]);
+        }
+
+        final List<Callable<Object>> bookings = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++)
+        {
+            for (int i = 0; i < PER_GROUP; i++)
+            {
+                final LocalDateTime start = startOf(group, i);
+                final long doctor = doctors[i];
+                final long patient = patients[i];
+                bookings.add(() -> service.book(patient, doctor, start, room, DURATION));
+            }
+        }
+
+        assertThat(bookConcurrently(bookings)).isEqualTo(GROUPS);
+        assertThat(countAppointments("room", room)).isEqualTo(GROUPS);
+        assertNoOverlaps();
+    }
+
+    @AfterEach
+    void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Interface
+
+    // Run the bookings on threads of their own, all released at once, and return the
+    // number that succeeded. Every other booking must have been rejected as a conflict.
+    private int bookConcurrently(final List<Callable<Object>> bookings)
+    {
+        final CountDownLatch ready = new CountDownLatch(bookings.size());
+        final CountDownLatch go = new CountDownLatch(1);
+
+        final List<Future<Object>> results = new ArrayList<>();
+        for (final Callable<Object> booking : bookings)
+        {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                go.await();
+                return booking.call();
+            }));
+        }
+
+        int booked = 0;
+        int rejected = 0;
+        try
+        {
+            assertThat(ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).as("All threads ready").isTrue();
+            go.countDown();
+
+            for (final Future<Object> result : results)
+            {
+                try
+                {
+                    result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    booked++;
+                }
+                catch (final ExecutionException e)
+                {
+                    assertThat(e.getCause()).isInstanceOf(FailedRequestException.class);
+                    rejected++;
+                }
+            }
+        }
+        catch (final Exception e)
+        {
+            throw new AssertionError("The bookings did not finish.", e);
+        }
+
+        assertThat(booked + rejected).isEqualTo(bookings.size());
+        return booked;
+    }
+
+    // Every booking of a group overlaps every other one, and the groups are far apart.
+    private static LocalDateTime startOf(final int group, final int i)
+    {
+        return START.plusHours(GROUP_HOURS * group).plusMinutes(OFFSET_MINUTES * i);
+    }
+
+    private int countAppointments(final String column, final long value)
+    {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM appointment WHERE " + column + " = ?", Integer.class,
+            value);
+    }
+
+    // Of two overlapping appointments of the same doctor or room, one always starts
+    // during the other.
+    private void assertNoOverlaps()
+    {
+        for (final String column : new String[] {"doctor_id", "room"})
+        {
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM appointment a JOIN appointment b"
+                + " ON b." + column + " = a." + column + " AND b.id <> a.id"
+                + " AND b.start_minute >= a.start_minute AND b.start_minute < a.start_minute + a.duration",
+                Integer.class)).as("Overlapping appointments by %s", column).isZero();
+        }
+    }
+
+    private long hireDoctor()
+    {
+        return doctorService.hire("Test", "Doctor", nextPhone()).getId();
+    }
+
+    private long addPatient(final long doctor)
+    {
+        return patientService.add(doctor, "Test", "Patient", nextPhone(), "1 Test Street").getId();
+    }
+
+    private static String nextPhone()
+    {
+        return Long.toString(FIRST_PHONE + PHONES.getAndIncrement());
+    }
+
+    private static int nextRoom()
+    {
+        return ROOMS.getAndIncrement();
+    }
+
+    // --------------------------------------------------------------------
+    // :: Private Members
+    @Autowired
+    private AppointmentService service;
+    @Autowired
+    private DoctorService doctorService;
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(GROUPS * PER_GROUP);
+
+    // The number of slots contended for at once, and of bookings contending for each.
+    private static final int GROUPS = 4;
+    private static final int PER_GROUP = 4;
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final int DURATION = 30;
+    private static final int OFFSET_MINUTES = 5;
+    private static final int GROUP_HOURS = 2;
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    // The phone numbers and rooms handed out to the tests, which must not be reused.
+    private static final long FIRST_PHONE = 7_000_000_000L;
+    private static final AtomicInteger PHONES = new AtomicInteger();
+    private static final AtomicInteger ROOMS = new AtomicInteger(1_000);
+}